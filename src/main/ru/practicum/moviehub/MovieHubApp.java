@@ -1,17 +1,28 @@
 package ru.practicum.moviehub;
 
+import ru.practicum.moviehub.config.MovieHubConfig;
 import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.ndjson.NdjsonImporter;
 
+import java.nio.file.Path;
 import java.util.Scanner;
 
 public class MovieHubApp {
     public static void main(String[] args) {
         try {
-            MoviesServer server = new MoviesServer();
+            long startedAt = System.nanoTime();
+            MovieHubConfig config = MovieHubConfig.fromSystemProperties();
+            applyJvmSettings(config);
+            MoviesServer server = new MoviesServer(config);
+            Path importPath = parseImportPath(args);
+            if (importPath != null) {
+                importMovies(server, importPath);
+            }
             server.start();
+            System.out.printf(" Запуск занял %d мс%n", (System.nanoTime() - startedAt) / 1_000_000);
 
             System.out.println(" MovieHub сервер запущен");
-            System.out.println(" http://localhost:8080/movies");
+            System.out.println(" http://localhost:" + config.getPort() + "/movies");
             System.out.println("\nДля остановки введите 'стоп':");
 
             Scanner scanner = new Scanner(System.in);
@@ -30,4 +41,37 @@ public class MovieHubApp {
             e.printStackTrace();
         }
     }
+
+    //Выставляет настройки, которые HttpServer из JDK читает из свойств JVM один раз - до
+    //создания первого сервера. Явно заданное при запуске свойство не переопределяется
+
+    private static void applyJvmSettings(MovieHubConfig config) {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", String.valueOf(config.isTcpNoDelay()));
+        }
+    }
+
+    //Ищет в аргументах запуска параметр --import <файл>
+
+    private static Path parseImportPath(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if ("--import".equals(args[i])) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("После --import нужно указать путь к файлу");
+                }
+                return Path.of(args[i + 1]);
+            }
+        }
+        return null;
+    }
+
+    //Загружает фильмы из NDJSON-файла до старта сервера и печатает итог
+
+    private static void importMovies(MoviesServer server, Path path) throws Exception {
+        System.out.println(" Импорт фильмов из " + path + "...");
+        NdjsonImporter.ImportResult result = new NdjsonImporter(server.getMoviesStore()).importFile(path);
+        System.out.printf(" Импорт завершен: строк %d, добавлено %d, отклонено %d за %d мс (%.0f строк/с)%n",
+                result.getLines(), result.getImported(), result.getRejected(),
+                result.getElapsedNanos() / 1_000_000, result.getLinesPerSecond());
+    }
 }
\ No newline at end of file
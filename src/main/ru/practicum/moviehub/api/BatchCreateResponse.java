@@ -0,0 +1,59 @@
+package ru.practicum.moviehub.api;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.List;
+
+//Ответ на пакетное создание фильмов: созданные фильмы и ошибки по отдельным элементам
+
+public class BatchCreateResponse {
+    private final int created;                 // Сколько фильмов создано
+    private final int failed;                  // Сколько элементов отклонено
+    private final List<Movie> movies;          // Созданные фильмы в порядке элементов запроса
+    private final List<ItemError> errors;      // Ошибки по элементам
+
+    public BatchCreateResponse(List<Movie> movies, List<ItemError> errors) {
+        this.created = movies.size();
+        this.failed = errors.size();
+        this.movies = movies;
+        this.errors = errors;
+    }
+
+    // Геттеры
+    public int getCreated() {
+        return created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    public List<ItemError> getErrors() {
+        return errors;
+    }
+
+    //Ошибка одного элемента пакета (index - позиция в массиве или номер строки NDJSON с нуля,
+    //пустые строки тоже считаются)
+
+    public static class ItemError {
+        private final int index;
+        private final List<String> details;
+
+        public ItemError(int index, List<String> details) {
+            this.index = index;
+            this.details = details;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<String> getDetails() {
+            return details;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.moviehub.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//Потоковый JSON адаптер ответа с ошибкой без рефлексии. Формат тот же, что у Gson по полям:
+//message, status и details (если есть)
+
+public class ErrorResponseTypeAdapter extends TypeAdapter<ErrorResponse> {
+
+    @Override
+    public void write(JsonWriter out, ErrorResponse error) throws IOException {
+        if (error == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (error.getMessage() != null) {
+            out.name("message").value(error.getMessage());
+        }
+        out.name("status").value(error.getStatus());
+        if (error.getDetails() != null) {
+            out.name("details").beginArray();
+            for (String detail : error.getDetails()) {
+                out.value(detail);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ErrorResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String message = null;
+        int status = 0;
+        List<String> details = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "message":
+                    message = readString(in);
+                    break;
+                case "status":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else {
+                        status = in.nextInt();
+                    }
+                    break;
+                case "details":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        details = null;
+                        break;
+                    }
+                    details = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        details.add(readString(in));
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new ErrorResponse(message, status, details);
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+}
\ No newline at end of file
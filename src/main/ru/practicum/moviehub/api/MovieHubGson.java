@@ -0,0 +1,29 @@
+package ru.practicum.moviehub.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import ru.practicum.moviehub.model.LocalDateAdapter;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieCreateRequest;
+import ru.practicum.moviehub.model.MovieCreateRequestTypeAdapter;
+import ru.practicum.moviehub.model.MovieTypeAdapter;
+
+import java.time.LocalDate;
+
+//Gson сервера: горячие типы API (фильм, запрос на создание, ошибка) пишутся и читаются
+//потоковыми адаптерами без рефлексии, остальные (пакетный ответ и т.п.) - как обычно
+
+public final class MovieHubGson {
+
+    private MovieHubGson() {
+    }
+
+    public static Gson create() {
+        return new GsonBuilder()
+                .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+                .registerTypeAdapter(Movie.class, new MovieTypeAdapter())
+                .registerTypeAdapter(MovieCreateRequest.class, new MovieCreateRequestTypeAdapter())
+                .registerTypeAdapter(ErrorResponse.class, new ErrorResponseTypeAdapter())
+                .create();
+    }
+}
\ No newline at end of file
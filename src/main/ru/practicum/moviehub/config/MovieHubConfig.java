@@ -0,0 +1,304 @@
+package ru.practicum.moviehub.config;
+
+import ru.practicum.moviehub.http.ExecutorMode;
+import ru.practicum.moviehub.http.ServerEngineType;
+import ru.practicum.moviehub.store.StorageMode;
+import ru.practicum.moviehub.store.WriteAheadLog;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+//Настройки MovieHub. По умолчанию совпадают с прежним поведением сервера,
+//переопределяются системными свойствами (например, -Dmoviehub.storage=columnar)
+
+public class MovieHubConfig {
+    private StorageMode storageMode = StorageMode.HEAP; // moviehub.storage
+
+    // Журнал изменений (moviehub.wal.*). Без пути журнал выключен
+    private Path walPath;
+    private WriteAheadLog.SyncPolicy walSyncPolicy = WriteAheadLog.SyncPolicy.BATCH;
+    private long walSyncIntervalMillis = 100;
+
+    // Снимки каталога (moviehub.snapshot.*). Без пути снимки выключены
+    private Path snapshotPath;
+    private long snapshotIntervalSeconds = 300;
+
+    // HTTP движок (moviehub.engine), основной порт (moviehub.port) и число слушателей (moviehub.listeners)
+    private ServerEngineType serverEngine = ServerEngineType.JDK;
+    private int port = 8080;
+    private int listeners = 1;
+
+    // Бюджет кеша готового JSON фильмов в байтах (moviehub.jsonCache.maxBytes, 0 - выключен)
+    private long jsonCacheBytes = 64L * 1024 * 1024;
+
+    // Сжатие ответов (moviehub.compression.*): минимальный размер ответа (отрицательный - сжатие
+    // выключено) и бюджет кеша сжатых ответов в байтах (0 - без кеша)
+    private int compressionMinBytes = 1024;
+    private long compressedCacheBytes = 32L * 1024 * 1024;
+
+    // Журнал доступа (moviehub.accessLog.*): емкость кольцевого буфера записей (0 - журнал
+    // выключен) и выборка успешных ответов - пишется каждый N-й в среднем (0 - только ошибки)
+    private int accessLogCapacity = 8192;
+    private int accessLogSampleEvery = 1;
+
+    // Замер фаз обработки запросов (moviehub.timing.*): заголовок Server-Timing и журнал
+    // запросов дольше порога в миллисекундах (отрицательный порог - без журнала). Журнал
+    // работает и без замера фаз, только тогда в нем нет разбивки по фазам
+    private boolean timingEnabled;
+    private long slowRequestMillis = 1000;
+
+    // Выполнение запросов (moviehub.executor.*). Размер пула и очереди - только для PLATFORM_POOL.
+    // По умолчанию INLINE, как раньше: на быстрых запросах к памяти передача в другой поток
+    // стоит дороже самой обработки, VIRTUAL и PLATFORM_POOL нужны при медленных запросах
+    private ExecutorMode executorMode = ExecutorMode.INLINE;
+    private int executorThreads = Runtime.getRuntime().availableProcessors() * 2;
+    private int executorQueueCapacity = 1024;
+
+    // TCP_NODELAY у движка JDK (moviehub.tcpNoDelay). Без него заголовки и тело уходят разными
+    // пакетами, и алгоритм Нейгла вместе с отложенным ACK клиента добавляет ~40 мс к каждому
+    // ответу на keep-alive соединении. HttpServer читает это из свойства JVM
+    // sun.net.httpserver.nodelay один раз, поэтому MovieHubApp выставляет его при запуске,
+    // если свойство не задано явно. NIO движок включает TCP_NODELAY всегда
+    private boolean tcpNoDelay = true;
+
+    //Настройки по умолчанию, переопределенные заданными системными свойствами
+
+    public static MovieHubConfig fromSystemProperties() {
+        MovieHubConfig config = new MovieHubConfig();
+        String storage = System.getProperty("moviehub.storage");
+        if (storage != null) {
+            config.setStorageMode(parseEnum(StorageMode.class, "moviehub.storage", storage));
+        }
+        String walPath = System.getProperty("moviehub.wal.path");
+        if (walPath != null) {
+            config.setWalPath(Path.of(walPath));
+        }
+        String walSync = System.getProperty("moviehub.wal.sync");
+        if (walSync != null) {
+            config.setWalSyncPolicy(parseEnum(WriteAheadLog.SyncPolicy.class, "moviehub.wal.sync", walSync));
+        }
+        config.setWalSyncIntervalMillis(parseLong("moviehub.wal.syncIntervalMs", config.getWalSyncIntervalMillis()));
+        String snapshotPath = System.getProperty("moviehub.snapshot.path");
+        if (snapshotPath != null) {
+            config.setSnapshotPath(Path.of(snapshotPath));
+        }
+        config.setSnapshotIntervalSeconds(
+                parseLong("moviehub.snapshot.intervalSec", config.getSnapshotIntervalSeconds()));
+        String engine = System.getProperty("moviehub.engine");
+        if (engine != null) {
+            config.setServerEngine(parseEnum(ServerEngineType.class, "moviehub.engine", engine));
+        }
+        config.setPort((int) parseLong("moviehub.port", config.getPort()));
+        config.setListeners((int) parseLong("moviehub.listeners", config.getListeners()));
+        config.setJsonCacheBytes(parseLong("moviehub.jsonCache.maxBytes", config.getJsonCacheBytes()));
+        config.setCompressionMinBytes(
+                (int) parseLong("moviehub.compression.minBytes", config.getCompressionMinBytes()));
+        config.setCompressedCacheBytes(
+                parseLong("moviehub.compression.cacheBytes", config.getCompressedCacheBytes()));
+        config.setAccessLogCapacity(
+                (int) parseLong("moviehub.accessLog.capacity", config.getAccessLogCapacity()));
+        config.setAccessLogSampleEvery(
+                (int) parseLong("moviehub.accessLog.sampleEvery", config.getAccessLogSampleEvery()));
+        String timing = System.getProperty("moviehub.timing.enabled");
+        if (timing != null) {
+            config.setTimingEnabled(Boolean.parseBoolean(timing.trim()));
+        }
+        config.setSlowRequestMillis(parseLong("moviehub.timing.slowMs", config.getSlowRequestMillis()));
+        String executor = System.getProperty("moviehub.executor");
+        if (executor != null) {
+            config.setExecutorMode(parseEnum(ExecutorMode.class, "moviehub.executor", executor));
+        }
+        config.setExecutorThreads(
+                (int) parseLong("moviehub.executor.threads", config.getExecutorThreads()));
+        config.setExecutorQueueCapacity(
+                (int) parseLong("moviehub.executor.queue", config.getExecutorQueueCapacity()));
+        String tcpNoDelay = System.getProperty("moviehub.tcpNoDelay");
+        if (tcpNoDelay != null) {
+            config.setTcpNoDelay(Boolean.parseBoolean(tcpNoDelay.trim()));
+        }
+        return config;
+    }
+
+    // Геттеры и сеттеры
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public void setStorageMode(StorageMode storageMode) {
+        this.storageMode = storageMode;
+    }
+
+    public Path getWalPath() {
+        return walPath;
+    }
+
+    public void setWalPath(Path walPath) {
+        this.walPath = walPath;
+    }
+
+    public WriteAheadLog.SyncPolicy getWalSyncPolicy() {
+        return walSyncPolicy;
+    }
+
+    public void setWalSyncPolicy(WriteAheadLog.SyncPolicy walSyncPolicy) {
+        this.walSyncPolicy = walSyncPolicy;
+    }
+
+    public long getWalSyncIntervalMillis() {
+        return walSyncIntervalMillis;
+    }
+
+    public void setWalSyncIntervalMillis(long walSyncIntervalMillis) {
+        this.walSyncIntervalMillis = walSyncIntervalMillis;
+    }
+
+    public Path getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public void setSnapshotPath(Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+
+    public long getSnapshotIntervalSeconds() {
+        return snapshotIntervalSeconds;
+    }
+
+    public void setSnapshotIntervalSeconds(long snapshotIntervalSeconds) {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    public ServerEngineType getServerEngine() {
+        return serverEngine;
+    }
+
+    public void setServerEngine(ServerEngineType serverEngine) {
+        this.serverEngine = serverEngine;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(int listeners) {
+        this.listeners = listeners;
+    }
+
+    public long getJsonCacheBytes() {
+        return jsonCacheBytes;
+    }
+
+    public void setJsonCacheBytes(long jsonCacheBytes) {
+        this.jsonCacheBytes = jsonCacheBytes;
+    }
+
+    public int getCompressionMinBytes() {
+        return compressionMinBytes;
+    }
+
+    public void setCompressionMinBytes(int compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
+
+    public long getCompressedCacheBytes() {
+        return compressedCacheBytes;
+    }
+
+    public void setCompressedCacheBytes(long compressedCacheBytes) {
+        this.compressedCacheBytes = compressedCacheBytes;
+    }
+
+    public int getAccessLogCapacity() {
+        return accessLogCapacity;
+    }
+
+    public void setAccessLogCapacity(int accessLogCapacity) {
+        this.accessLogCapacity = accessLogCapacity;
+    }
+
+    public int getAccessLogSampleEvery() {
+        return accessLogSampleEvery;
+    }
+
+    public void setAccessLogSampleEvery(int accessLogSampleEvery) {
+        this.accessLogSampleEvery = accessLogSampleEvery;
+    }
+
+    public boolean isTimingEnabled() {
+        return timingEnabled;
+    }
+
+    public void setTimingEnabled(boolean timingEnabled) {
+        this.timingEnabled = timingEnabled;
+    }
+
+    public long getSlowRequestMillis() {
+        return slowRequestMillis;
+    }
+
+    public void setSlowRequestMillis(long slowRequestMillis) {
+        this.slowRequestMillis = slowRequestMillis;
+    }
+
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
+
+    public void setExecutorMode(ExecutorMode executorMode) {
+        this.executorMode = executorMode;
+    }
+
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    public void setExecutorThreads(int executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+
+    public int getExecutorQueueCapacity() {
+        return executorQueueCapacity;
+    }
+
+    public void setExecutorQueueCapacity(int executorQueueCapacity) {
+        this.executorQueueCapacity = executorQueueCapacity;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    private static long parseLong(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    String.format("Неверное значение %s: %s", property, value), e);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String property, String value) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    String.format("Неверное значение %s: %s", property, value), e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package ru.practicum.moviehub.http;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+//Асинхронный журнал доступа. Поток запроса только кладет поля записи в кольцевой буфер
+//фиксированного размера (без блокировок, без форматирования и без аллокаций), а строки
+//собирает и отдает в приемник отдельный фоновый поток. Если буфер полон, запись
+//отбрасывается - ждать ввода-вывода журнала запрос не должен никогда; число пропущенных
+//записей журнал сообщает сам.
+//Ответы с ошибкой (4xx, 5xx) пишутся всегда, остальные - выборкой: в среднем каждый N-й
+
+public final class AccessLog implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(AccessLog.class.getName());
+
+    // Сколько фоновый поток спит, когда буфер пуст
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final int sampleEvery;
+    private final Consumer<String> sink;
+    private final Thread writer;
+
+    // Следующая позиция для записи (общая для потоков запросов) и для чтения (только фоновый поток)
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+    private volatile boolean closed;
+
+    //capacity округляется вверх до степени двойки, sampleEvery - 1 (все), N (каждый N-й) или 0 (только ошибки)
+
+    public AccessLog(int capacity, int sampleEvery, Consumer<String> sink) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость журнала доступа должна быть положительной: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = size - 1;
+        this.sampleEvery = sampleEvery;
+        this.sink = sink;
+        this.writer = new Thread(this::drainLoop, "access-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    //Журнал в java.util.logging (логгер ru.practicum.moviehub.access) или null, если выключен
+
+    public static AccessLog create(int capacity, int sampleEvery) {
+        if (capacity <= 0) {
+            return null;
+        }
+        Logger accessLogger = Logger.getLogger("ru.practicum.moviehub.access");
+        return new AccessLog(capacity, sampleEvery, accessLogger::info);
+    }
+
+    //Регистрирует обработанный запрос. Не блокируется: при полном буфере запись отбрасывается
+
+    public void record(String method, String path, int status, long durationNanos, InetSocketAddress remote) {
+        if (status < 400 && !sampled()) {
+            return;
+        }
+        long position = tail.get();
+        while (true) {
+            Slot slot = slots[(int) position & mask];
+            long diff = slot.sequence - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.timestampMillis = System.currentTimeMillis();
+                    slot.method = method;
+                    slot.path = path;
+                    slot.status = status;
+                    slot.durationNanos = durationNanos;
+                    slot.remote = remote;
+                    // Публикация: после этой записи фоновый поток видит заполненные поля
+                    slot.sequence = position + 1;
+                    return;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // Фоновый поток еще не освободил ячейку - буфер полон
+                dropped.incrementAndGet();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    //Сколько записей отброшено из-за переполнения буфера
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    //Останавливает фоновый поток, дописав то, что уже в буфере
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean sampled() {
+        if (sampleEvery == 1) {
+            return true;
+        }
+        return sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(160);
+        while (true) {
+            boolean stopping = closed;
+            int drained = drain(line);
+            reportDropped();
+            if (stopping && drained == 0) {
+                return;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    //Переносит в приемник все опубликованные записи и возвращает их число
+
+    private int drain(StringBuilder line) {
+        int drained = 0;
+        while (true) {
+            Slot slot = slots[(int) head & mask];
+            if (slot.sequence != head + 1) {
+                return drained;
+            }
+            line.setLength(0);
+            format(slot, line);
+            // Ссылки не держим: ячейка может долго ждать следующей записи
+            slot.method = null;
+            slot.path = null;
+            slot.remote = null;
+            slot.sequence = head + slots.length;
+            head++;
+            drained++;
+            emit(line.toString());
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.get();
+        if (total > reportedDropped) {
+            long lost = total - reportedDropped;
+            reportedDropped = total;
+            emit("access log: буфер переполнен, пропущено записей: " + lost);
+        }
+    }
+
+    private void emit(String line) {
+        try {
+            sink.accept(line);
+        } catch (RuntimeException e) {
+            // Ошибка приемника не должна останавливать фоновый поток
+            logger.warning(() -> "Ошибка записи журнала доступа: " + e.getMessage());
+        }
+    }
+
+    //Строка журнала: поля ключ=значение, время в UTC, длительность в миллисекундах
+
+    static void format(Slot slot, StringBuilder line) {
+        line.append("ts=").append(Instant.ofEpochMilli(slot.timestampMillis))
+                .append(" method=").append(slot.method)
+                .append(" path=").append(slot.path)
+                .append(" status=").append(slot.status)
+                .append(" durationMs=");
+        PhaseTimer.appendMillis(line, slot.durationNanos);
+        if (slot.remote != null) {
+            line.append(" remote=").append(slot.remote.getAddress() != null
+                    ? slot.remote.getAddress().getHostAddress() : slot.remote.getHostString());
+        }
+    }
+
+    //Ячейка буфера. sequence == позиция - свободна для записи с этой позиции,
+    //позиция + 1 - заполнена и ждет фонового потока
+
+    static final class Slot {
+        volatile long sequence;
+        long timestampMillis;
+        String method;
+        String path;
+        int status;
+        long durationNanos;
+        InetSocketAddress remote;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
\ No newline at end of file
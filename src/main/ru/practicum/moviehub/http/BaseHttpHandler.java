@@ -1,17 +1,102 @@
 package ru.practicum.moviehub.http;
 
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 //Базовый обработчик HTTP запросов
 
 public abstract class BaseHttpHandler implements HttpHandler {
     protected static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
 
+    // Кодировки сжатия ответа (Content-Encoding)
+    protected static final String ENCODING_GZIP = "gzip";
+    protected static final String ENCODING_DEFLATE = "deflate";
+
+    // Ответы короче этого не сжимаются: выигрыш меньше заголовков gzip и затрат процессора
+    public static final int DEFAULT_COMPRESSION_MIN_BYTES = 1024;
+
+    // Сколько непрочитанного тела запроса дочитывается перед ответом об ошибке
+    private static final long MAX_DISCARD_BYTES = 8L * 1024 * 1024;
+
+    private int compressionMinBytes = DEFAULT_COMPRESSION_MIN_BYTES;
+
+    // Счетчики байт тел запросов и ответов (null - не считаются)
+    private HttpMetrics metrics;
+
+    // Замер фаз обработки запроса: включается настройкой, таймер запроса живет в его потоке
+    private boolean timingEnabled;
+    private final ThreadLocal<PhaseTimer> timers = new ThreadLocal<>();
+
+    //Минимальный размер ответа для сжатия (отрицательное значение - сжатие выключено)
+
+    protected final void setCompressionMinBytes(int compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
+
+    //Метрики, в которые считаются байты тел запросов и ответов
+
+    protected final void setMetrics(HttpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    //Включает замер фаз обработки запросов и заголовок Server-Timing
+
+    protected final void setTimingEnabled(boolean timingEnabled) {
+        this.timingEnabled = timingEnabled;
+    }
+
+    //Начинает замер фаз для запроса текущего потока (null - замер выключен)
+
+    protected PhaseTimer startTiming() {
+        if (!timingEnabled) {
+            return null;
+        }
+        PhaseTimer timer = new PhaseTimer();
+        timers.set(timer);
+        return timer;
+    }
+
+    //Заканчивает замер, начатый startTiming
+
+    protected void endTiming() {
+        if (timingEnabled) {
+            timers.remove();
+        }
+    }
+
+    //Отмечает конец фазы обработки текущего запроса. Без замера ничего не делает
+
+    protected void phase(String name) {
+        if (timingEnabled) {
+            PhaseTimer timer = timers.get();
+            if (timer != null) {
+                timer.phase(name);
+            }
+        }
+    }
+
+    //Ставит заголовок Server-Timing с фазами, завершенными к моменту отправки заголовков
+
+    protected void addServerTiming(HttpExchange exchange) {
+        if (timingEnabled) {
+            PhaseTimer timer = timers.get();
+            if (timer != null) {
+                exchange.getResponseHeaders().set("Server-Timing", timer.toServerTiming());
+            }
+        }
+    }
+
     /**
      * Отправляет JSON ответ
      *
@@ -20,9 +105,46 @@ public abstract class BaseHttpHandler implements HttpHandler {
      * @param json     JSON строка для отправки
      */
     protected void sendJson(HttpExchange exchange, int status, String json) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
-        byte[] response = json.getBytes(StandardCharsets.UTF_8);
+        sendJson(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Отправляет готовый JSON ответ в UTF-8. Ответ от порога размера сжимается,
+     * если клиент принимает gzip или deflate
+     *
+     * @param exchange HTTP обмен
+     * @param status   HTTP статус код
+     * @param response JSON в кодировке UTF-8
+     */
+    protected void sendJson(HttpExchange exchange, int status, byte[] response) throws IOException {
+        sendBytes(exchange, status, CONTENT_TYPE_JSON, response);
+    }
+
+    /**
+     * Отправляет готовое тело ответа с заданным типом. Ответ от порога размера сжимается,
+     * если клиент принимает gzip или deflate
+     *
+     * @param exchange    HTTP обмен
+     * @param status      HTTP статус код
+     * @param contentType значение заголовка Content-Type
+     * @param response    тело ответа
+     */
+    protected void sendBytes(HttpExchange exchange, int status, String contentType, byte[] response)
+            throws IOException {
+        if (isCompressible(response.length)) {
+            String encoding = negotiateEncoding(exchange);
+            if (encoding != null) {
+                byte[] compressed = compress(response, encoding);
+                phase("compress");
+                sendEncoded(exchange, status, contentType, compressed, encoding);
+                return;
+            }
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        addServerTiming(exchange);
         exchange.sendResponseHeaders(status, response.length);
+        countResponseBytes(response.length);
 
         try (OutputStream os = exchange.getResponseBody()) {
             os.write(response);
@@ -31,10 +153,340 @@ public abstract class BaseHttpHandler implements HttpHandler {
         }
     }
 
+    /**
+     * Отправляет JSON ответ потоком (chunked transfer encoding): тело не собирается в память
+     * целиком, а пишется в сокет по мере формирования. Если ошибка случится после начала
+     * отправки, статус поменять уже нельзя: поток не завершается, а исключение уходит
+     * движку, и тот обрывает соединение
+     *
+     * @param exchange HTTP обмен
+     * @param status   HTTP статус код
+     * @param body     пишет JSON (UTF-8) в переданный поток
+     */
+    protected void sendJsonStream(HttpExchange exchange, int status, StreamingBody body) throws IOException {
+        sendJsonStream(exchange, status, negotiateEncoding(exchange), null, body);
+    }
+
+    /**
+     * Отправляет JSON ответ потоком в заданной кодировке сжатия
+     *
+     * @param exchange HTTP обмен
+     * @param status   HTTP статус код
+     * @param encoding gzip, deflate или null - без сжатия
+     * @param copy     получает копию отправленных (уже сжатых) байт, может быть null
+     * @param body     пишет JSON (UTF-8) в переданный поток
+     */
+    protected void sendJsonStream(HttpExchange exchange, int status, String encoding, OutputStream copy,
+                                  StreamingBody body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (encoding != null) {
+            setContentEncoding(exchange, encoding);
+        }
+        // Тело пишется после заголовков, поэтому в Server-Timing его сериализации нет
+        addServerTiming(exchange);
+        // Длина 0 означает chunked: размер ответа заранее неизвестен
+        exchange.sendResponseHeaders(status, 0);
+
+        OutputStream raw = copy == null ? responseBody(exchange)
+                : new TeeOutputStream(responseBody(exchange), copy);
+        OutputStream os = new BufferedOutputStream(encodingStream(raw, encoding), 8192);
+        // При ошибке поток не закрывается: закрытие дописало бы трейлер gzip и последний
+        // chunk, и клиент принял бы обрезанный ответ за полный
+        body.writeTo(os);
+        os.close();
+        exchange.close();
+    }
+
+    /**
+     * Отправляет JSON ответ, уже сжатый в заданной кодировке
+     *
+     * @param exchange HTTP обмен
+     * @param status   HTTP статус код
+     * @param body     сжатое тело ответа
+     * @param encoding кодировка сжатия (gzip или deflate)
+     */
+    protected void sendEncodedJson(HttpExchange exchange, int status, byte[] body, String encoding)
+            throws IOException {
+        sendEncoded(exchange, status, CONTENT_TYPE_JSON, body, encoding);
+    }
+
+    private void sendEncoded(HttpExchange exchange, int status, String contentType, byte[] body, String encoding)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        setContentEncoding(exchange, encoding);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        addServerTiming(exchange);
+        exchange.sendResponseHeaders(status, body.length);
+        countResponseBytes(body.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    //Достаточно ли велик ответ, чтобы его сжимать
+
+    protected boolean isCompressible(int length) {
+        return compressionMinBytes >= 0 && length >= compressionMinBytes;
+    }
+
+    //Кодировка сжатия ответа для клиента или null, если сжатие выключено или клиенту не подходит
+
+    protected String negotiateEncoding(HttpExchange exchange) {
+        if (compressionMinBytes < 0) {
+            return null;
+        }
+        return negotiateEncoding(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    //Выбирает по заголовку Accept-Encoding gzip или deflate с наибольшим весом q.
+    //При равном весе предпочитается gzip, q=0 - явный запрет, * разрешает обе кодировки
+
+    static String negotiateEncoding(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals(ENCODING_GZIP) || coding.equals("x-gzip")) {
+                gzip = Math.max(gzip, q);
+            } else if (coding.equals(ENCODING_DEFLATE)) {
+                deflate = Math.max(deflate, q);
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        // Кодировки, не названные явно, получают вес из *
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? ENCODING_GZIP : ENCODING_DEFLATE;
+    }
+
+    //Сжимает тело ответа целиком в заданной кодировке
+
+    protected static byte[] compress(byte[] data, String encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (OutputStream compressed = encodingStream(out, encoding)) {
+            compressed.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    //Ставит Content-Encoding. Сильные ETag разных кодировок одного ответа должны различаться
+    //(RFC 9110), поэтому к уже поставленному ETag дописывается кодировка
+
+    protected static void setContentEncoding(HttpExchange exchange, String encoding) {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Encoding", encoding);
+        String etag = headers.getFirst("ETag");
+        if (etag != null) {
+            headers.set("ETag", etagWithEncoding(etag, encoding));
+        }
+    }
+
+    //ETag сжатого представления: "v1" -> "v1-gzip"
+
+    protected static String etagWithEncoding(String etag, String encoding) {
+        if (!etag.endsWith("\"")) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    //Оборачивает поток в сжимающий для заданной кодировки (null - поток как есть).
+    //deflate по RFC 9110 - это формат zlib, именно его пишет DeflaterOutputStream
+
+    protected static OutputStream encodingStream(OutputStream out, String encoding) throws IOException {
+        if (encoding == null) {
+            return out;
+        }
+        if (encoding.equals(ENCODING_GZIP)) {
+            return new GZIPOutputStream(out, 8192);
+        }
+        if (encoding.equals(ENCODING_DEFLATE)) {
+            return new DeflaterOutputStream(out);
+        }
+        throw new IllegalArgumentException("Неизвестная кодировка сжатия: " + encoding);
+    }
+
+    //Дочитывает и отбрасывает остаток тела запроса (не больше MAX_DISCARD_BYTES). Если закрыть
+    //соединение с непрочитанными данными, ядро ответит клиенту RST, и тот может потерять уже
+    //отправленный ответ об ошибке. Тело больше предела не дочитывается - соединение закроется
+
+    protected void discardRequestBody(HttpExchange exchange) {
+        byte[] buffer = new byte[8192];
+        long discarded = 0;
+        try {
+            InputStream in = requestBody(exchange);
+            int read;
+            while (discarded < MAX_DISCARD_BYTES && (read = in.read(buffer)) != -1) {
+                discarded += read;
+            }
+        } catch (IOException e) {
+            // Клиент уже оборвал соединение - дочитывать нечего
+        }
+    }
+
+    //Тело запроса; прочитанные из него байты попадают в метрики
+
+    protected InputStream requestBody(HttpExchange exchange) {
+        InputStream in = exchange.getRequestBody();
+        return metrics == null ? in : new CountingInputStream(in, metrics);
+    }
+
+    //Поток тела ответа для потоковой отдачи; записанные в него байты попадают в метрики
+
+    protected OutputStream responseBody(HttpExchange exchange) {
+        OutputStream out = exchange.getResponseBody();
+        return metrics == null ? out : new CountingOutputStream(out, metrics);
+    }
+
+    private void countResponseBytes(long bytes) {
+        if (metrics != null) {
+            metrics.addResponseBytes(bytes);
+        }
+    }
+
     //Отправляет ответ без содержимого (204 No Content)
 
     protected void sendNoContent(HttpExchange exchange) throws IOException {
+        addServerTiming(exchange);
         exchange.sendResponseHeaders(204, -1);
         exchange.close();
     }
+
+    //Тело потокового ответа
+
+    @FunctionalInterface
+    protected interface StreamingBody {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    //Пишет байты в основной поток и копию. Закрывается только основной поток
+
+    private static final class TeeOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final OutputStream copy;
+
+        TeeOutputStream(OutputStream out, OutputStream copy) {
+            this.out = out;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            copy.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    //Считает прочитанные байты тела запроса
+
+    private static final class CountingInputStream extends InputStream {
+        private final InputStream in;
+        private final HttpMetrics metrics;
+
+        CountingInputStream(InputStream in, HttpMetrics metrics) {
+            this.in = in;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                metrics.addRequestBytes(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = in.read(bytes, offset, length);
+            if (read > 0) {
+                metrics.addRequestBytes(read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    //Считает записанные байты тела ответа
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final HttpMetrics metrics;
+
+        CountingOutputStream(OutputStream out, HttpMetrics metrics) {
+            this.out = out;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            metrics.addResponseBytes(1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            metrics.addResponseBytes(length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package ru.practicum.moviehub.http;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Кеш сжатых тел ответов. Ключ - кодировка и URI запроса, запись помечена ETag ответа
+//(то есть версией данных хранилища): пока версия не поменялась, тот же ответ отдается
+//без повторного сжатия. После изменения данных запись с прежним ETag просто не совпадает
+//и перезаписывается при следующем запросе.
+//Объем ограничен бюджетом в байтах, лишнее вытесняется в порядке давности использования (LRU).
+//Сжатие дороже поиска в мапе на порядки, поэтому хватает одной общей блокировки
+
+public class CompressedResponseCache {
+    // Примерные накладные расходы на запись (узел мапы, Entry, заголовок массива)
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+    // Одна запись не больше четверти бюджета, иначе одна выгрузка вытеснит все остальное
+    private final long maxEntryBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+
+    public CompressedResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxBytes / 4;
+    }
+
+    //Ключ записи: кодировка и URI запроса (путь с query строкой)
+
+    public static String key(String encoding, String requestUri) {
+        return encoding + ' ' + requestUri;
+    }
+
+    //Сжатое тело для ключа, если оно сохранено для того же ETag, иначе null
+
+    public synchronized byte[] get(String key, String etag) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.etag.equals(etag)) {
+            return null;
+        }
+        return entry.body;
+    }
+
+    //Сохраняет сжатое тело ответа с ETag, заменяя прежнюю запись ключа
+
+    public void put(String key, String etag, byte[] body) {
+        long size = entrySize(key, body);
+        if (size > maxEntryBytes) {
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(etag, body));
+            usedBytes += size - (previous != null ? entrySize(key, previous.body) : 0);
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                usedBytes -= entrySize(evicted.getKey(), evicted.getValue().body);
+                eldest.remove();
+            }
+        }
+    }
+
+    //Буфер для копии потокового ответа. Если ответ вышел больше допустимой записи,
+    //буфер перестает копить и в кеш не попадет. null - кеш выключен
+
+    public Capture capture() {
+        return maxBytes > 0 ? new Capture(maxEntryBytes) : null;
+    }
+
+    //Сохраняет собранную копию ответа, если она поместилась
+
+    public void put(String key, String etag, Capture capture) {
+        if (capture != null && !capture.overflowed) {
+            put(key, etag, capture.toByteArray());
+        }
+    }
+
+    //Занятый кешем объем в байтах (приблизительно)
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    private static long entrySize(String key, byte[] body) {
+        return body.length + 2L * key.length() + ENTRY_OVERHEAD;
+    }
+
+    private static final class Entry {
+        final String etag;
+        final byte[] body;
+
+        Entry(String etag, byte[] body) {
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    //Копия тела ответа с ограничением размера
+
+    public static final class Capture extends OutputStream {
+        private final long limit;
+        private byte[] buffer = new byte[8192];
+        private int size;
+        private boolean overflowed;
+
+        private Capture(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (overflowed) {
+                return;
+            }
+            if (size + (long) length > limit) {
+                // Дальше не копим: такой ответ все равно не будет закеширован
+                overflowed = true;
+                buffer = null;
+                return;
+            }
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(limit, Math.max(buffer.length * 2L, size + length)));
+            }
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
\ No newline at end of file
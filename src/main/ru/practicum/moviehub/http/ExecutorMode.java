@@ -0,0 +1,14 @@
+package ru.practicum.moviehub.http;
+
+//Где MoviesServer выполняет обработчики запросов
+
+public enum ExecutorMode {
+    // В потоке-диспетчере HttpServer, как раньше (по умолчанию): медленный запрос задерживает
+    // всех остальных
+    INLINE,
+    // Пул платформенных потоков фиксированного размера с ограниченной очередью.
+    // Когда очередь полна, запрос выполняет сам диспетчер - это притормаживает прием соединений
+    PLATFORM_POOL,
+    // Отдельный виртуальный поток на каждый запрос
+    VIRTUAL
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+package ru.practicum.moviehub.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+//Метрики HTTP сервера: по каждому маршруту - счетчики ответов по статусам и гистограмма
+//длительностей, общие счетчики байт тел запросов и ответов и произвольные показатели
+//(размер каталога, очередь executor), которые снимаются в момент выгрузки.
+//Все счетчики - LongAdder (полосатые счетчики): потоки запросов почти не делят между
+//собой ячейки памяти, а складываются полосы только при выгрузке в формат Prometheus
+
+public class HttpMetrics {
+    private static final String PREFIX = "moviehub_";
+
+    private final List<RouteMetrics> routes = new CopyOnWriteArrayList<>();
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    // Запросы, для которых не нашлось маршрута (404, 405, не число в ID)
+    private final RouteMetrics unmatched = new RouteMetrics("*", "unmatched");
+
+    //Регистрирует маршрут. Вызывается при создании обработчика, не на каждый запрос
+
+    public RouteMetrics route(String method, String pattern) {
+        RouteMetrics route = new RouteMetrics(method, pattern);
+        routes.add(route);
+        return route;
+    }
+
+    public RouteMetrics unmatched() {
+        return unmatched;
+    }
+
+    //Регистрирует показатель, значение которого берется из supplier при каждой выгрузке
+
+    public void registerGauge(String name, String help, LongSupplier supplier) {
+        gauges.add(new Gauge(PREFIX + name, help, supplier));
+    }
+
+    public void addRequestBytes(long bytes) {
+        requestBytes.add(bytes);
+    }
+
+    public void addResponseBytes(long bytes) {
+        responseBytes.add(bytes);
+    }
+
+    //Все метрики в текстовом формате Prometheus (version 0.0.4)
+
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        List<RouteMetrics> all = new ArrayList<>(routes);
+        all.add(unmatched);
+
+        header(out, "http_requests_total", "counter", "Обработанные HTTP запросы по маршрутам и статусам");
+        for (RouteMetrics route : all) {
+            for (int status = 0; status < route.statuses.length(); status++) {
+                LongAdder counter = route.statuses.get(status);
+                if (counter != null) {
+                    out.append(PREFIX).append("http_requests_total{");
+                    route.labels(out);
+                    out.append(",status=\"").append(status).append("\"} ").append(counter.sum()).append('\n');
+                }
+            }
+        }
+
+        header(out, "http_request_duration_seconds", "histogram", "Длительность обработки HTTP запросов");
+        for (RouteMetrics route : all) {
+            long[] counts = route.latency.snapshot();
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            if (total == 0) {
+                continue;
+            }
+            long cumulative = 0;
+            for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                cumulative += counts[i];
+                out.append(PREFIX).append("http_request_duration_seconds_bucket{");
+                route.labels(out);
+                out.append(",le=\"").append(LatencyHistogram.UPPER_BOUND_LABELS[i]).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            out.append(PREFIX).append("http_request_duration_seconds_bucket{");
+            route.labels(out);
+            out.append(",le=\"+Inf\"} ").append(total).append('\n');
+            out.append(PREFIX).append("http_request_duration_seconds_sum{");
+            route.labels(out);
+            out.append("} ").append(route.latency.sumNanos() / 1e9).append('\n');
+            out.append(PREFIX).append("http_request_duration_seconds_count{");
+            route.labels(out);
+            out.append("} ").append(total).append('\n');
+        }
+
+        header(out, "http_request_bytes_total", "counter", "Прочитанные байты тел HTTP запросов");
+        out.append(PREFIX).append("http_request_bytes_total ").append(requestBytes.sum()).append('\n');
+        header(out, "http_response_bytes_total", "counter", "Отправленные байты тел HTTP ответов");
+        out.append(PREFIX).append("http_response_bytes_total ").append(responseBytes.sum()).append('\n');
+
+        for (Gauge gauge : gauges) {
+            out.append("# HELP ").append(gauge.name).append(' ').append(gauge.help).append('\n');
+            out.append("# TYPE ").append(gauge.name).append(" gauge\n");
+            out.append(gauge.name).append(' ').append(gauge.supplier.getAsLong()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    //Метрики одного маршрута
+
+    public static final class RouteMetrics {
+        // Статусы 0..599, счетчик создается при первом ответе с этим статусом.
+        // Массив, а не мапа: не нужно упаковывать статус в Integer на каждый запрос
+        private static final int MAX_STATUS = 600;
+
+        private final String method;
+        private final String pattern;
+        private final AtomicReferenceArray<LongAdder> statuses = new AtomicReferenceArray<>(MAX_STATUS);
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private RouteMetrics(String method, String pattern) {
+            this.method = method;
+            this.pattern = pattern;
+        }
+
+        //Учитывает ответ со статусом status, обработанный за durationNanos
+
+        public void record(int status, long durationNanos) {
+            int index = status >= 0 && status < MAX_STATUS ? status : 0;
+            LongAdder counter = statuses.get(index);
+            if (counter == null) {
+                statuses.compareAndSet(index, null, new LongAdder());
+                counter = statuses.get(index);
+            }
+            counter.increment();
+            latency.record(durationNanos);
+        }
+
+        private void labels(StringBuilder out) {
+            out.append("method=\"").append(method).append("\",route=\"").append(pattern).append('"');
+        }
+    }
+
+    private static final class Gauge {
+        final String name;
+        final String help;
+        final LongSupplier supplier;
+
+        Gauge(String name, String help, LongSupplier supplier) {
+            this.name = name;
+            this.help = help;
+            this.supplier = supplier;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+//Движок на com.sun.net.httpserver.HttpServer из JDK. TCP_NODELAY задается свойством JVM
+//sun.net.httpserver.nodelay до создания первого сервера (см. MovieHubConfig.tcpNoDelay)
+
+public class JdkServerEngine implements ServerEngine {
+    private final HttpServer server;
+
+    public JdkServerEngine(InetSocketAddress address, int backlog) throws IOException {
+        this.server = HttpServer.create(address, backlog);
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        // null - обработка в потоке-диспетчере HttpServer
+        server.setExecutor(executor);
+    }
+
+    @Override
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void stop() {
+        server.stop(0);
+    }
+}
\ No newline at end of file
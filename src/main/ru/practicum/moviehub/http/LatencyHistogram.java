@@ -0,0 +1,83 @@
+package ru.practicum.moviehub.http;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+//Гистограмма длительностей в духе HdrHistogram: корзины логарифмически-линейные. Первая корзина -
+//до 16 мкс, дальше каждая степень двойки делится на 4 равные корзины, поэтому граница корзины
+//отличается от значения не больше чем на 25% при любом масштабе - от микросекунд до минут.
+//Счетчики - LongAdder: запись из многих потоков не упирается в одну общую ячейку
+
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Первая корзина - [0, 2^4 мкс), последняя заканчивается на 2^27 мкс (около 134 с)
+    private static final int MIN_EXPONENT = 4;
+    private static final int MAX_EXPONENT = 27;
+
+    // Число корзин с конечной верхней границей; все, что длиннее, попадает только в +Inf
+    static final int BUCKETS = 1 + (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS;
+
+    // Верхние границы корзин в секундах для меток le в формате Prometheus
+    static final String[] UPPER_BOUND_LABELS = new String[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUND_LABELS[i] = BigDecimal.valueOf(upperBoundMicros(i), 6).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    // Последний счетчик - значения за пределами последней корзины
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        counts[index(Math.max(0, nanos) / 1000)].increment();
+        sumNanos.add(nanos);
+    }
+
+    //Количество значений в каждой корзине (последний элемент - сверх последней границы)
+
+    long[] snapshot() {
+        long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    //Номер корзины для значения в микросекундах
+
+    static int index(long micros) {
+        if (micros < (1L << MIN_EXPONENT)) {
+            return 0;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    //Верхняя граница корзины (не включая ее саму) в микросекундах
+
+    static long upperBoundMicros(int index) {
+        if (index == 0) {
+            return 1L << MIN_EXPONENT;
+        }
+        int exponent = MIN_EXPONENT + (index - 1) / SUB_BUCKETS;
+        int subBucket = (index - 1) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ErrorResponse;
+import ru.practicum.moviehub.api.MovieHubGson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+//GET /metrics - метрики сервера в текстовом формате Prometheus
+
+public class MetricsHandler extends BaseHttpHandler {
+    private static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=UTF-8";
+
+    private final HttpMetrics metrics;
+    private final Gson gson = MovieHubGson.create();
+
+    public MetricsHandler(HttpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (!path.equals("/metrics") && !path.equals("/metrics/")) {
+            ErrorResponse notFound = new ErrorResponse("Неверный путь запроса", 404);
+            sendJson(exchange, 404, gson.toJson(notFound));
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            ErrorResponse error = new ErrorResponse(
+                    String.format("Метод %s не разрешен для данного ресурса. Разрешены: GET",
+                            exchange.getRequestMethod()),
+                    405);
+            sendJson(exchange, 405, gson.toJson(error));
+            return;
+        }
+        sendBytes(exchange, 200, CONTENT_TYPE_PROMETHEUS, metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8));
+    }
+}
\ No newline at end of file
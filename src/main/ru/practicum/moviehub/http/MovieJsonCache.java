@@ -0,0 +1,135 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.Gson;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.StoreListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Кеш готового JSON (UTF-8) отдельных фильмов. Movie неизменяем, поэтому сериализовать
+//фильм достаточно один раз, а ответы собирать из готовых фрагментов.
+//Запись кеша хранит сам фильм: попадание засчитывается, только если фильм в хранилище
+//совпадает с закешированным, поэтому гонки с удалением и повторным использованием ID
+//после очистки не могут отдать устаревший JSON. Удаление и очистка хранилища лишь
+//освобождают память заранее.
+//Объем ограничен бюджетом в байтах; при превышении записи вытесняются по алгоритму
+//CLOCK (второй шанс): недавно прочитанные переживают один проход вытеснения
+
+public class MovieJsonCache implements StoreListener {
+    // Примерные накладные расходы на запись (узел мапы, Entry, заголовок массива, объект Movie)
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Gson gson;
+    private final long maxBytes;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // Стрелка CLOCK: продолжает обход с места, где остановилась прошлая чистка
+    private Iterator<Map.Entry<Integer, Entry>> clockHand;
+
+    public MovieJsonCache(Gson gson, long maxBytes) {
+        this.gson = gson;
+        this.maxBytes = maxBytes;
+    }
+
+    //Возвращает JSON фильма, сериализуя и кешируя его при промахе
+
+    public byte[] get(Movie movie) {
+        Entry entry = entries.get(movie.getId());
+        if (entry != null && (entry.movie == movie || entry.movie.equals(movie))) {
+            entry.referenced = true;
+            return entry.json;
+        }
+        byte[] json = gson.toJson(movie, Movie.class).getBytes(StandardCharsets.UTF_8);
+        if (maxBytes > 0) {
+            Entry created = new Entry(movie, json);
+            Entry previous = entries.put(movie.getId(), created);
+            usedBytes.addAndGet(created.size() - (previous != null ? previous.size() : 0));
+            if (usedBytes.get() > maxBytes) {
+                evict();
+            }
+        }
+        return json;
+    }
+
+    //Занятый кешем объем в байтах (приблизительно)
+
+    public long usedBytes() {
+        return usedBytes.get();
+    }
+
+    @Override
+    public void onDelete(int id) {
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            usedBytes.addAndGet(-removed.size());
+        }
+    }
+
+    @Override
+    public void onClear() {
+        evictionLock.lock();
+        try {
+            entries.clear();
+            usedBytes.set(0);
+            clockHand = null;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    //Освобождает место до 90% бюджета. Чистит один поток, остальные не ждут
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long target = maxBytes - maxBytes / 10;
+            // Два полных круга гарантированно освобождают место: на первом сбрасываются метки
+            int budget = entries.size() * 2 + 1;
+            while (usedBytes.get() > target && budget-- > 0) {
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = entries.entrySet().iterator();
+                    if (!clockHand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<Integer, Entry> candidate = clockHand.next();
+                Entry entry = candidate.getValue();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else if (entries.remove(candidate.getKey(), entry)) {
+                    usedBytes.addAndGet(-entry.size());
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    //Закешированный фильм и его JSON
+
+    private static final class Entry {
+        final Movie movie;
+        final byte[] json;
+        volatile boolean referenced;
+
+        Entry(Movie movie, byte[] json) {
+            this.movie = movie;
+            this.json = json;
+        }
+
+        //Строки фильма примерно равны по объему его JSON - считаем их вторым json.length
+        //(при хранении в куче они общие с хранилищем, так что оценка с запасом)
+
+        long size() {
+            return 2L * json.length + ENTRY_OVERHEAD;
+        }
+    }
+}
\ No newline at end of file
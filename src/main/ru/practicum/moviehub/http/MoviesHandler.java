@@ -2,132 +2,261 @@ package ru.practicum.moviehub.http;
 
 import com.google.gson.*;
 import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.BatchCreateResponse;
 import ru.practicum.moviehub.api.ErrorResponse;
+import ru.practicum.moviehub.api.MovieHubGson;
+import ru.practicum.moviehub.config.MovieHubConfig;
 import ru.practicum.moviehub.model.Movie;
 import ru.practicum.moviehub.model.MovieCreateRequest;
-import ru.practicum.moviehub.model.LocalDateAdapter;
+import ru.practicum.moviehub.model.MovieValidator;
+import ru.practicum.moviehub.ndjson.NdjsonExporter;
+import ru.practicum.moviehub.store.CatalogView;
 import ru.practicum.moviehub.store.MoviesStore;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 //Обработчик HTTP запросов для работы с фильмами
 
-public class MoviesHandler extends BaseHttpHandler {
+public final class MoviesHandler extends BaseHttpHandler {
     private static final Logger logger = Logger.getLogger(MoviesHandler.class.getName());
+    private static final Logger slowLogger = Logger.getLogger("ru.practicum.moviehub.slow");
     private static final int MAX_REQUEST_SIZE = 1024 * 1024; // 1 МБ
 
-    // Константы для валидации
-    private static final int MIN_YEAR = 1888;
-    private static final int MAX_NAME_LENGTH = 100;
-    private static final int MAX_DESCRIPTION_LENGTH = 2000;
-    private static final int MAX_DURATION_HOURS = 24;
-    private static final int MIN_DURATION = 1;
+    // Ограничения пакетной загрузки POST /movies/batch
+    private static final int MAX_BATCH_REQUEST_SIZE = 64 * 1024 * 1024; // 64 МБ
+    private static final int MAX_BATCH_ITEMS = 100_000;
+    private static final String CONTENT_TYPE_NDJSON = "application/x-ndjson";
+
+    // Методы, которые перечисляются в Allow при ответе 405
+    private static final String[] ALLOWED_METHODS = {"GET", "POST", "DELETE"};
+
+    // Поддерживаемые query параметры для GET /movies
+    private static final Set<String> SUPPORTED_QUERY_PARAMS = Set.of("year", "from", "to", "q", "limit", "cursor");
+
+    // Размер страницы при постраничном обходе каталога по умолчанию и максимум
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+
+    // Сколько фильмов за раз читается из хранилища при потоковой отдаче полного списка
+    private static final int STREAM_BATCH_SIZE = 512;
+
+    // Максимум результатов полнотекстового поиска
+    private static final int MAX_SEARCH_RESULTS = 100;
+
+    // Количество подсказок автодополнения по умолчанию и максимум
+    private static final int DEFAULT_SUGGEST_LIMIT = 10;
+    private static final int MAX_SUGGEST_LIMIT = 100;
 
     private final MoviesStore moviesStore;
     private final Gson gson;
+    private final MovieValidator validator = new MovieValidator();
+    private final NdjsonExporter exporter;
+    private final MovieJsonCache jsonCache;
+    private final CompressedResponseCache compressedCache;
+    private final Router router;
+    private final AccessLog accessLog;
+    private final HttpMetrics metrics;
+    // Порог журнала медленных запросов (отрицательный - журнал выключен)
+    private final long slowRequestNanos;
+
+    // Метка запуска в ETag: после перезапуска версии хранилища начинаются заново,
+    // и ETag, выданные прошлым процессом, не должны совпасть с новыми
+    private final String etagPrefix = Long.toString(System.currentTimeMillis(), 36);
 
     public MoviesHandler(MoviesStore moviesStore) {
+        this(moviesStore, new MovieHubConfig());
+    }
+
+    public MoviesHandler(MoviesStore moviesStore, MovieHubConfig config) {
+        this(moviesStore, config, null, null);
+    }
+
+    //Из настроек берутся бюджеты кешей и порог сжатия ответов. accessLog и metrics могут
+    //быть null - тогда запросы не журналируются и не учитываются в метриках
+
+    public MoviesHandler(MoviesStore moviesStore, MovieHubConfig config, AccessLog accessLog, HttpMetrics metrics) {
+        this(moviesStore, config, accessLog, metrics, null);
+    }
+
+    //exporter - выгрузка для GET /movies/export (null - обычная выгрузка через Gson обработчика)
+
+    MoviesHandler(MoviesStore moviesStore, MovieHubConfig config, AccessLog accessLog, HttpMetrics metrics,
+                  NdjsonExporter exporter) {
         this.moviesStore = moviesStore;
-        this.gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
-                .create();
+        this.accessLog = accessLog;
+        this.metrics = metrics;
+        this.gson = MovieHubGson.create();
+        this.exporter = exporter != null ? exporter : new NdjsonExporter(gson);
+        this.jsonCache = new MovieJsonCache(gson, config.getJsonCacheBytes());
+        this.compressedCache = new CompressedResponseCache(config.getCompressedCacheBytes());
+        setCompressionMinBytes(config.getCompressionMinBytes());
+        setMetrics(metrics);
+        setTimingEnabled(config.isTimingEnabled());
+        this.slowRequestNanos = config.getSlowRequestMillis() < 0 ? -1
+                : TimeUnit.MILLISECONDS.toNanos(config.getSlowRequestMillis());
+        moviesStore.addListener(jsonCache);
+        this.router = new Router();
+        route("GET", "/movies", (exchange, id) -> handleGetAllMovies(exchange));
+        route("GET", "/movies/suggest", (exchange, id) -> handleSuggest(exchange));
+        route("GET", "/movies/export", (exchange, id) -> handleExport(exchange));
+        route("GET", "/movies/{id}", this::handleGetMovieById);
+        route("POST", "/movies", (exchange, id) -> handlePostMovie(exchange));
+        route("POST", "/movies/batch", (exchange, id) -> handlePostBatch(exchange));
+        route("DELETE", "/movies/{id}", this::handleDeleteMovie);
+    }
+
+    //Регистрирует маршрут. С метриками обработчик оборачивается замером длительности и статуса
+
+    private void route(String method, String pattern, Router.Handler handler) {
+        if (metrics == null) {
+            router.add(method, pattern, handler);
+            return;
+        }
+        HttpMetrics.RouteMetrics routeMetrics = metrics.route(method, pattern);
+        router.add(method, pattern, (exchange, id) -> {
+            long startNanos = System.nanoTime();
+            try {
+                handler.handle(exchange, id);
+            } finally {
+                // Ответа нет, если обработчик упал до него - тогда handle() отправит 500
+                int status = exchange.getResponseCode();
+                routeMetrics.record(status < 0 ? 500 : status, System.nanoTime() - startNanos);
+            }
+        });
     }
 
     //Основной метод обработки HTTP запросов
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        long startNanos = System.nanoTime();
+        String method = exchange.getRequestMethod();
+        // Найденные маршруты учитываются в метриках сами, здесь - только запросы без маршрута
+        Router.Result result = Router.Result.ROUTED;
+        PhaseTimer timer = startTiming();
         try {
-            String method = exchange.getRequestMethod();
             String path = exchange.getRequestURI().getPath();
 
-            logger.info(() -> String.format("Обработка запроса: %s %s", method, path));
-
             // Маршрутизация запросов
-            switch (method) {
-                case "GET":
-                    handleGetRequest(exchange, path);
+            result = router.dispatch(exchange, method, path);
+            switch (result) {
+                case ROUTED:
+                    break;
+                case BAD_VARIABLE:
+                    ErrorResponse badId = new ErrorResponse("ID должен быть числом", 400);
+                    sendJson(exchange, 400, gson.toJson(badId));
                     break;
-                case "POST":
-                    if (path.equals("/movies")) {
-                        handlePostMovie(exchange);
+                case NOT_FOUND:
+                    // Неизвестный путь: для GET - 404, для остальных методов, как и раньше, 405
+                    if (method.equals("GET")) {
+                        ErrorResponse notFound = new ErrorResponse("Неверный путь запроса", 404);
+                        sendJson(exchange, 404, gson.toJson(notFound));
                     } else {
-                        sendMethodNotAllowed(exchange, new String[]{"GET", "POST", "DELETE"});
+                        sendMethodNotAllowed(exchange, ALLOWED_METHODS);
                     }
                     break;
-                case "DELETE":
-                    handleDeleteRequest(exchange, path);
-                    break;
                 default:
-                    sendMethodNotAllowed(exchange, new String[]{"GET", "POST", "DELETE"});
+                    sendMethodNotAllowed(exchange, ALLOWED_METHODS);
                     break;
             }
         } catch (Exception e) {
+            if (exchange.getResponseCode() >= 0) {
+                // Ответ уже начат: 500 не отправить, а закрытие обмена выдало бы клиенту
+                // обрезанное тело за целое. Движок, получив исключение, оборвет соединение
+                throw e instanceof IOException ? (IOException) e : new IOException(e);
+            }
             logger.severe(() -> String.format("Необработанное исключение: %s", e.getMessage()));
             ErrorResponse error = new ErrorResponse("Внутренняя ошибка сервера", 500);
             sendJson(exchange, 500, gson.toJson(error));
-        }
-    }
-
-    //Обработка GET запросов
-
-    private void handleGetRequest(HttpExchange exchange, String path) throws IOException {
-        String[] parts = path.split("/");
-
-        // GET /movies
-        if (parts.length == 2) {
-            handleGetAllMovies(exchange);
-
-            // GET /movies/{id}
-        } else if (parts.length == 3) {
-            try {
-                int id = Integer.parseInt(parts[2]);
-                handleGetMovieById(exchange, id);
-            } catch (NumberFormatException e) {
-                ErrorResponse error = new ErrorResponse("ID должен быть числом", 400);
-                sendJson(exchange, 400, gson.toJson(error));
+        } finally {
+            if (metrics != null && result != Router.Result.ROUTED) {
+                metrics.unmatched().record(exchange.getResponseCode(), System.nanoTime() - startNanos);
+            }
+            if (accessLog != null) {
+                accessLog.record(method, exchange.getRequestURI().getRawPath(), exchange.getResponseCode(),
+                        System.nanoTime() - startNanos, exchange.getRemoteAddress());
             }
-        } else {
-            ErrorResponse error = new ErrorResponse("Неверный путь запроса", 404);
-            sendJson(exchange, 404, gson.toJson(error));
+            if (timer != null) {
+                endTiming();
+            }
+            logIfSlow(exchange, method, System.nanoTime() - startNanos, timer);
         }
     }
 
-    //Обработка DELETE запросов
-
-    private void handleDeleteRequest(HttpExchange exchange, String path) throws IOException {
-        String[] parts = path.split("/");
+    //Пишет запрос в журнал медленных запросов, если он дольше порога. Разбивка по фазам
+    //есть, только если включен замер фаз (timer не null)
 
-        // DELETE /movies/{id}
-        if (parts.length == 3 && parts[1].equals("movies")) {
-            try {
-                int id = Integer.parseInt(parts[2]);
-                handleDeleteMovie(exchange, id);
-            } catch (NumberFormatException e) {
-                ErrorResponse error = new ErrorResponse("ID должен быть числом", 400);
-                sendJson(exchange, 400, gson.toJson(error));
-            }
-        } else {
-            sendMethodNotAllowed(exchange, new String[]{"GET", "POST", "DELETE"});
+    private void logIfSlow(HttpExchange exchange, String method, long elapsed, PhaseTimer timer) {
+        if (slowRequestNanos < 0 || elapsed < slowRequestNanos) {
+            return;
         }
+        int status = exchange.getResponseCode();
+        String path = exchange.getRequestURI().getRawPath();
+        slowLogger.warning(() -> {
+            StringBuilder line = new StringBuilder("Медленный запрос: ").append(method).append(' ').append(path)
+                    .append(" status=").append(status).append(" total=");
+            PhaseTimer.appendMillis(line, elapsed);
+            line.append("ms");
+            return timer != null ? line.append(' ').append(timer.describe()).toString() : line.toString();
+        });
     }
 
     //GET /movies - получение всех фильмов
     private void handleGetAllMovies(HttpExchange exchange) throws IOException {
         try {
             // Проверяем query параметры
-            String query = exchange.getRequestURI().getQuery();
+            Map<String, String> params;
+            try {
+                params = parseQuery(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                ErrorResponse error = new ErrorResponse("Неверная кодировка query параметров", 400);
+                sendJson(exchange, 400, gson.toJson(error));
+                return;
+            }
             List<Movie> movies;
+            String etag;
+
+            for (String name : params.keySet()) {
+                if (!SUPPORTED_QUERY_PARAMS.contains(name)) {
+                    // Неизвестные query параметры
+                    ErrorResponse error = new ErrorResponse("Неизвестный query параметр. "
+                            + "Используйте ?year=YYYY, ?from=YYYY-MM-DD&to=YYYY-MM-DD, ?q=текст "
+                            + "или ?limit=N&cursor=...", 400);
+                    sendJson(exchange, 400, gson.toJson(error));
+                    return;
+                }
+            }
+
+            boolean byYear = params.containsKey("year");
+            boolean byDate = params.containsKey("from") || params.containsKey("to");
+            boolean bySearch = params.containsKey("q");
+            boolean paged = params.containsKey("limit") || params.containsKey("cursor");
+            if ((byYear ? 1 : 0) + (byDate ? 1 : 0) + (bySearch ? 1 : 0) > 1) {
+                ErrorResponse error = new ErrorResponse("Фильтры year, from/to и q нельзя сочетать", 400);
+                sendJson(exchange, 400, gson.toJson(error));
+                return;
+            }
+            if (paged && (byYear || byDate || bySearch)) {
+                ErrorResponse error = new ErrorResponse(
+                        "Параметры limit и cursor поддерживаются только для полного списка", 400);
+                sendJson(exchange, 400, gson.toJson(error));
+                return;
+            }
 
-            if (query != null && query.startsWith("year=")) {
+            if (byYear) {
                 // Фильтрация по году
-                String yearParam = query.substring(5);
+                String yearParam = params.get("year");
                 try {
                     int year = Integer.parseInt(yearParam);
 
@@ -137,6 +266,11 @@ public class MoviesHandler extends BaseHttpHandler {
                         return;
                     }
 
+                    etag = etag("y" + year + "-" + moviesStore.getYearVersion(year));
+                    if (notModified(exchange, etag)) {
+                        return;
+                    }
+
                     // Для очень больших годов возвращаем пустой список
                     if (year > 10000) {
                         movies = Collections.emptyList();
@@ -148,36 +282,331 @@ public class MoviesHandler extends BaseHttpHandler {
                     sendJson(exchange, 400, gson.toJson(error));
                     return;
                 }
-            } else if (query != null && !query.isEmpty()) {
-                // Неизвестные query параметры
-                ErrorResponse error = new ErrorResponse("Неизвестный query параметр. Используйте ?year=YYYY",
-                        400);
-                sendJson(exchange, 400, gson.toJson(error));
-                return;
+            } else if (byDate) {
+                // Фильтрация по диапазону дат выпуска (границы включительно, любая может отсутствовать)
+                LocalDate from;
+                LocalDate to;
+                try {
+                    from = params.containsKey("from") ? LocalDate.parse(params.get("from")) : null;
+                    to = params.containsKey("to") ? LocalDate.parse(params.get("to")) : null;
+                } catch (DateTimeParseException e) {
+                    ErrorResponse error = new ErrorResponse(
+                            "Неверный формат даты. Используйте формат YYYY-MM-DD (например: 2023-12-31)", 400);
+                    sendJson(exchange, 400, gson.toJson(error));
+                    return;
+                }
+
+                if (from != null && to != null && from.isAfter(to)) {
+                    ErrorResponse error = new ErrorResponse("Дата from не может быть позже даты to", 400);
+                    sendJson(exchange, 400, gson.toJson(error));
+                    return;
+                }
+                etag = etag("v" + moviesStore.getVersion());
+                if (notModified(exchange, etag)) {
+                    return;
+                }
+                movies = moviesStore.getMoviesByReleaseDate(from, to);
+            } else if (bySearch) {
+                // Полнотекстовый поиск по названию и описанию, результаты упорядочены по релевантности
+                String searchQuery = params.get("q").trim();
+                if (searchQuery.isEmpty()) {
+                    ErrorResponse error = new ErrorResponse("Поисковый запрос не может быть пустым", 400);
+                    sendJson(exchange, 400, gson.toJson(error));
+                    return;
+                }
+                etag = etag("v" + moviesStore.getVersion());
+                if (notModified(exchange, etag)) {
+                    return;
+                }
+                movies = moviesStore.search(searchQuery, MAX_SEARCH_RESULTS);
+            } else if (paged) {
+                // Постраничный обход в порядке ID: курсор - это закодированный ID последнего фильма
+                int limit = DEFAULT_PAGE_LIMIT;
+                if (params.containsKey("limit")) {
+                    try {
+                        limit = Integer.parseInt(params.get("limit"));
+                    } catch (NumberFormatException e) {
+                        limit = -1;
+                    }
+                    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+                        ErrorResponse error = new ErrorResponse(
+                                String.format("Параметр limit должен быть числом от 1 до %d", MAX_PAGE_LIMIT), 400);
+                        sendJson(exchange, 400, gson.toJson(error));
+                        return;
+                    }
+                }
+
+                int afterId = 0;
+                if (params.containsKey("cursor")) {
+                    afterId = decodeCursor(params.get("cursor"));
+                    if (afterId < 0) {
+                        ErrorResponse error = new ErrorResponse("Неверный курсор", 400);
+                        sendJson(exchange, 400, gson.toJson(error));
+                        return;
+                    }
+                }
+
+                etag = etag("v" + moviesStore.getVersion());
+                if (notModified(exchange, etag)) {
+                    return;
+                }
+                movies = moviesStore.getMoviesAfter(afterId, limit);
+                if (movies.size() == limit) {
+                    int lastId = movies.get(movies.size() - 1).getId();
+                    if (moviesStore.hasMoviesAfter(lastId)) {
+                        exchange.getResponseHeaders().set("X-Next-Cursor", encodeCursor(lastId));
+                    }
+                }
             } else {
-                // Все фильмы
-                movies = moviesStore.getAllMovies();
+                // Все фильмы - потоком, чтобы память не зависела от размера каталога
+                etag = etag("v" + moviesStore.getVersion());
+                if (notModified(exchange, etag)) {
+                    return;
+                }
+                sendAllMovies(exchange, etag);
+                return;
             }
 
-            String jsonResponse = gson.toJson(movies);
-            sendJson(exchange, 200, jsonResponse);
+            phase("store");
+            byte[] body = toJsonArray(movies);
+            phase("serialize");
+            sendCompressible(exchange, body, etag);
 
         } catch (Exception e) {
+            if (exchange.getResponseCode() >= 0) {
+                // Список уже отправляется: 500 не отправить, а завершение потока выдало бы
+                // клиенту обрезанный список за целый. Исключение уходит в handle() и движку
+                logger.warning(() -> String.format("Отправка списка фильмов прервана: %s", e.getMessage()));
+                throw e instanceof IOException ? (IOException) e : new IOException(e);
+            }
             logger.severe(() -> String.format("Ошибка при получении фильмов: %s", e.getMessage()));
             ErrorResponse error = new ErrorResponse("Ошибка при обработке запроса", 500);
             sendJson(exchange, 500, gson.toJson(error));
         }
     }
 
+    //Отдает весь каталог потоком. Сжатый ответ берется из кеша сжатых ответов по ETag,
+    //а при промахе сжимается на лету и заодно копируется в кеш
+
+    private void sendAllMovies(HttpExchange exchange, String etag) throws IOException {
+        String encoding = negotiateEncoding(exchange);
+        if (encoding == null) {
+            sendJsonStream(exchange, 200, null, null, this::writeAllMovies);
+            return;
+        }
+        String key = CompressedResponseCache.key(encoding, exchange.getRequestURI().toString());
+        byte[] cached = compressedCache.get(key, etag);
+        if (cached != null) {
+            sendEncodedJson(exchange, 200, cached, encoding);
+            return;
+        }
+        CompressedResponseCache.Capture capture = compressedCache.capture();
+        sendJsonStream(exchange, 200, encoding, capture, this::writeAllMovies);
+        compressedCache.put(key, etag, capture);
+    }
+
+    //Отправляет ответ 200 с версией etag. Сжатое представление кешируется по ETag:
+    //пока данные не изменились, одинаковые запросы не сжимают ответ повторно
+
+    private void sendCompressible(HttpExchange exchange, byte[] body, String etag) throws IOException {
+        String encoding = isCompressible(body.length) ? negotiateEncoding(exchange) : null;
+        if (encoding == null) {
+            sendJson(exchange, 200, body);
+            return;
+        }
+        String key = CompressedResponseCache.key(encoding, exchange.getRequestURI().toString());
+        byte[] compressed = compressedCache.get(key, etag);
+        if (compressed == null) {
+            compressed = compress(body, encoding);
+            compressedCache.put(key, etag, compressed);
+            phase("compress");
+        }
+        sendEncodedJson(exchange, 200, compressed, encoding);
+    }
+
+    //Пишет весь каталог JSON-массивом порциями по STREAM_BATCH_SIZE в порядке ID
+    //из готовых фрагментов кеша
+
+    private void writeAllMovies(OutputStream out) throws IOException {
+        out.write('[');
+        int afterId = 0;
+        boolean first = true;
+        List<Movie> batch;
+        do {
+            batch = moviesStore.getMoviesAfter(afterId, STREAM_BATCH_SIZE);
+            for (Movie movie : batch) {
+                if (!first) {
+                    out.write(',');
+                }
+                out.write(jsonCache.get(movie));
+                first = false;
+                afterId = movie.getId();
+            }
+        } while (batch.size() == STREAM_BATCH_SIZE);
+        out.write(']');
+    }
+
+    //ETag ответа для версии данных
+
+    private String etag(String version) {
+        return "\"" + etagPrefix + "-" + version + "\"";
+    }
+
+    //Ставит ETag ответа. Если клиент прислал совпадающий If-None-Match,
+    //отвечает 304 без тела и возвращает true - выборка и сериализация не нужны
+
+    private boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        String matched = matchIfNoneMatch(exchange.getRequestHeaders().getFirst("If-None-Match"), etag);
+        if (matched == null) {
+            return false;
+        }
+        // 304 подтверждает то представление (сжатое или нет), чей ETag прислал клиент
+        exchange.getResponseHeaders().set("ETag", matched);
+        addServerTiming(exchange);
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+
+    //Возвращает ETag из If-None-Match, совпавший с etag или с ETag его сжатого представления,
+    //или null (сравнение слабое, как велит RFC 9110)
+
+    private static String matchIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return etag;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)
+                    || tag.equals(etagWithEncoding(etag, ENCODING_GZIP))
+                    || tag.equals(etagWithEncoding(etag, ENCODING_DEFLATE))) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    //Собирает JSON-массив фильмов из готовых фрагментов кеша
+
+    private byte[] toJsonArray(List<Movie> movies) {
+        byte[][] parts = new byte[movies.size()][];
+        int length = 2 + Math.max(0, movies.size() - 1);
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = jsonCache.get(movies.get(i));
+            length += parts[i].length;
+        }
+        byte[] result = new byte[length];
+        int position = 0;
+        result[position++] = '[';
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                result[position++] = ',';
+            }
+            System.arraycopy(parts[i], 0, result, position, parts[i].length);
+            position += parts[i].length;
+        }
+        result[position] = ']';
+        return result;
+    }
+
+    //GET /movies/suggest?prefix=...&limit=N - подсказки названий для автодополнения
+
+    private void handleSuggest(HttpExchange exchange) throws IOException {
+        Map<String, String> params;
+        try {
+            params = parseQuery(exchange.getRequestURI().getRawQuery());
+        } catch (IllegalArgumentException e) {
+            ErrorResponse error = new ErrorResponse("Неверная кодировка query параметров", 400);
+            sendJson(exchange, 400, gson.toJson(error));
+            return;
+        }
+
+        String prefix = params.get("prefix");
+        if (prefix == null || prefix.trim().isEmpty()) {
+            ErrorResponse error = new ErrorResponse("Параметр prefix обязателен", 400);
+            sendJson(exchange, 400, gson.toJson(error));
+            return;
+        }
+
+        int limit = DEFAULT_SUGGEST_LIMIT;
+        if (params.containsKey("limit")) {
+            try {
+                limit = Integer.parseInt(params.get("limit"));
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 1 || limit > MAX_SUGGEST_LIMIT) {
+                ErrorResponse error = new ErrorResponse(
+                        String.format("Параметр limit должен быть числом от 1 до %d", MAX_SUGGEST_LIMIT), 400);
+                sendJson(exchange, 400, gson.toJson(error));
+                return;
+            }
+        }
+
+        String etag = etag("v" + moviesStore.getVersion());
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        sendCompressible(exchange, gson.toJson(moviesStore.suggestNames(prefix, limit))
+                .getBytes(StandardCharsets.UTF_8), etag);
+    }
+
+    //GET /movies/export - выгрузка всего каталога в NDJSON на один момент времени.
+    //Если клиент принимает gzip или deflate, ответ сжимается
+
+    private void handleExport(HttpExchange exchange) throws IOException {
+        String encoding = negotiateEncoding(exchange);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_NDJSON + "; charset=UTF-8");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (encoding != null) {
+            setContentEncoding(exchange, encoding);
+        }
+
+        try (CatalogView view = moviesStore.openView()) {
+            // Длина 0 означает chunked: размер выгрузки заранее неизвестен
+            addServerTiming(exchange);
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = encodingStream(responseBody(exchange), encoding);
+            long exported;
+            try {
+                exported = exporter.export(view, out);
+            } catch (IOException | RuntimeException e) {
+                // Заголовки уже отправлены. Закрытие потока дописало бы трейлер gzip и последний
+                // chunk, и клиент принял бы обрезанную выгрузку за полную. Поэтому поток не
+                // закрывается, а исключение уходит движку - тот обрывает соединение
+                logger.warning(() -> String.format("Выгрузка каталога прервана: %s", e.getMessage()));
+                throw e;
+            }
+            out.close();
+            exchange.close();
+            logger.info(() -> String.format("Выгружено фильмов: %d", exported));
+        }
+    }
+
     //GET /movies/{id} - получение фильма по ID
 
     private void handleGetMovieById(HttpExchange exchange, int id) throws IOException {
         try {
+            // Фильмы неизменяемы, а ID не переиспользуются до очистки хранилища - поэтому ETag
+            // фильма зависит только от версии очистки. Ее читаем до поиска фильма
+            long clearVersion = moviesStore.getClearVersion();
             Optional<Movie> movieOpt = moviesStore.getMovieById(id);
+            phase("store");
 
             if (movieOpt.isPresent()) {
-                String jsonResponse = gson.toJson(movieOpt.get());
-                sendJson(exchange, 200, jsonResponse);
+                if (notModified(exchange, etag("m" + id + "-" + clearVersion))) {
+                    return;
+                }
+                byte[] body = jsonCache.get(movieOpt.get());
+                phase("serialize");
+                sendJson(exchange, 200, body);
             } else {
                 ErrorResponse error = new ErrorResponse("Фильм не найден", 404);
                 sendJson(exchange, 404, gson.toJson(error));
@@ -201,85 +630,41 @@ public class MoviesHandler extends BaseHttpHandler {
         }
 
 
-        String requestBody = null;
-
         try {
-            // Читаем тело запроса с ограничением размера
-            try (InputStream is = exchange.getRequestBody();
-                 ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                long totalBytes = 0;
-
-                while ((bytesRead = is.read(buffer)) != -1) {
-                    totalBytes += bytesRead;
-                    if (totalBytes > MAX_REQUEST_SIZE) {
-                        ErrorResponse error = new ErrorResponse("Размер запроса превышает 1 МБ", 413);
-                        sendJson(exchange, 413, gson.toJson(error));
-                        return;
-                    }
-                    baos.write(buffer, 0, bytesRead);
-                }
-
-                requestBody = baos.toString(StandardCharsets.UTF_8.name());
-            } catch (IOException e) {
-                ErrorResponse error = new ErrorResponse("Ошибка чтения тела запроса", 400);
-                sendJson(exchange, 400, gson.toJson(error));
-                return;
-            }
-
-            // Проверяем, что тело не пустое
-            if (requestBody == null || requestBody.trim().isEmpty()) {
-                ErrorResponse error = new ErrorResponse("Тело запроса не может быть пустым", 400);
-                sendJson(exchange, 400, gson.toJson(error));
-                return;
-            }
-
-            // Парсинг JSON в DTO за один раз
-            MovieCreateRequest request = gson.fromJson(requestBody, MovieCreateRequest.class);
-
+            // JSON разбирается прямо из потока тела с ограничением размера
+            MovieCreateRequest request = readJsonBody(exchange, MovieCreateRequest.class,
+                    MAX_REQUEST_SIZE, "1 МБ");
             if (request == null) {
-                ErrorResponse error = new ErrorResponse("Тело запроса не может быть пустым", 400);
-                sendJson(exchange, 400, gson.toJson(error));
                 return;
             }
+            // Тело читается и разбирается одним проходом, поэтому фаза parse включает и чтение
+            phase("parse");
 
             // Валидация данных из DTO (включая проверку на наличие ID)
-            List<String> errors = validateMovieRequest(request);
+            List<String> errors = validator.validate(request);
+            phase("validate");
             if (!errors.isEmpty()) {
                 ErrorResponse error = new ErrorResponse("Ошибка валидации", 422, errors);
                 sendJson(exchange, 422, gson.toJson(error));
                 return;
             }
 
-            // Преобразование строки в LocalDate
-            LocalDate releaseDate = LocalDate.parse(request.getReleaseDate());
-
             // Создание фильма - ВСЕГДА указываем ID=0, чтобы сервер сам его сгенерировал
-            Movie movie = new Movie(0,
-                    request.getName().trim(),
-                    request.getDescription() != null ? request.getDescription().trim() : "",
-                    releaseDate,
-                    request.getDuration());
+            Movie movie = validator.toMovie(request);
+            phase("validate");
 
             // Добавление фильма в хранилище
             Movie createdMovie = moviesStore.addMovie(movie);
-
-            // Успешный ответ
-            String jsonResponse = gson.toJson(createdMovie);
-            sendJson(exchange, 201, jsonResponse);
-            logger.info(() -> String.format("Создан фильм: ID=%d, Название='%s'",
+            phase("store");
+
+            // Успешный ответ. Заодно фильм попадает в кеш JSON - его скорее всего скоро запросят
+            byte[] body = jsonCache.get(createdMovie);
+            phase("serialize");
+            sendJson(exchange, 201, body);
+            // Сам запрос попадает в журнал доступа, подробности - только на уровне FINE
+            logger.fine(() -> String.format("Создан фильм: ID=%d, Название='%s'",
                     createdMovie.getId(), createdMovie.getName()));
 
-        } catch (JsonSyntaxException e) {
-            String requestBodyForLog = requestBody != null ?
-                    requestBody.substring(0, Math.min(requestBody.length(), 200)) : "null";
-
-            logger.warning(() -> String.format("Ошибка парсинга JSON: %s. Тело: %s",
-                    e.getMessage(), requestBodyForLog));
-            ErrorResponse error = new ErrorResponse("Неверный формат JSON", 400);
-            sendJson(exchange, 400, gson.toJson(error));
         } catch (DateTimeParseException e) {
             logger.warning(() -> String.format("Ошибка парсинга даты: %s", e.getMessage()));
             ErrorResponse error = new ErrorResponse(
@@ -297,6 +682,214 @@ public class MoviesHandler extends BaseHttpHandler {
         }
     }
 
+    //POST /movies/batch - пакетное создание фильмов.
+    //Принимает JSON-массив (application/json) или по объекту на строку (application/x-ndjson).
+    //Каждый элемент проверяется отдельно; корректные создаются, ошибки возвращаются по индексам
+
+    private void handlePostBatch(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        boolean ndjson = contentType != null && contentType.contains(CONTENT_TYPE_NDJSON);
+        if (contentType == null || !(ndjson || contentType.contains("application/json"))) {
+            ErrorResponse error = new ErrorResponse(
+                    "Требуется Content-Type: application/json или " + CONTENT_TYPE_NDJSON, 415);
+            sendJson(exchange, 415, gson.toJson(error));
+            return;
+        }
+
+        String requestBody = readRequestBody(exchange, MAX_BATCH_REQUEST_SIZE, "64 МБ");
+        if (requestBody == null) {
+            return;
+        }
+        phase("read");
+
+        // Элементы пакета в исходном виде: JSON элемент массива или строка NDJSON.
+        // Для NDJSON запоминаются номера строк элементов: пустые строки пропускаются, но в
+        // ошибках номер должен указывать на строку запроса
+        List<Object> items = new ArrayList<>();
+        int[] lineNumbers = null;
+        try {
+            if (ndjson) {
+                String[] lines = requestBody.split("\\r?\\n");
+                lineNumbers = new int[lines.length];
+                for (int line = 0; line < lines.length; line++) {
+                    if (!lines[line].isBlank()) {
+                        lineNumbers[items.size()] = line;
+                        items.add(lines[line]);
+                    }
+                }
+            } else {
+                JsonElement root = JsonParser.parseString(requestBody);
+                if (!root.isJsonArray()) {
+                    ErrorResponse error = new ErrorResponse("Ожидается JSON-массив фильмов", 400);
+                    sendJson(exchange, 400, gson.toJson(error));
+                    return;
+                }
+                root.getAsJsonArray().forEach(items::add);
+            }
+        } catch (JsonParseException e) {
+            ErrorResponse error = new ErrorResponse("Неверный формат JSON", 400);
+            sendJson(exchange, 400, gson.toJson(error));
+            return;
+        }
+
+        phase("parse");
+        if (items.isEmpty()) {
+            ErrorResponse error = new ErrorResponse("Пакет не может быть пустым", 400);
+            sendJson(exchange, 400, gson.toJson(error));
+            return;
+        }
+        if (items.size() > MAX_BATCH_ITEMS) {
+            ErrorResponse error = new ErrorResponse(
+                    String.format("В пакете не может быть больше %d фильмов", MAX_BATCH_ITEMS), 413);
+            sendJson(exchange, 413, gson.toJson(error));
+            return;
+        }
+
+        // Разбор и валидация элементов параллельно: null - элемент корректен
+        Movie[] movies = new Movie[items.size()];
+        AtomicReferenceArray<List<String>> itemErrors = parseBatchItems(items, movies);
+        // Элементы разбираются в DTO и проверяются вместе, параллельно - это одна фаза
+        phase("validate");
+
+        List<Movie> valid = new ArrayList<>(items.size());
+        List<BatchCreateResponse.ItemError> errors = new ArrayList<>();
+        for (int i = 0; i < movies.length; i++) {
+            if (itemErrors.get(i) != null) {
+                int index = lineNumbers != null ? lineNumbers[i] : i;
+                errors.add(new BatchCreateResponse.ItemError(index, itemErrors.get(i)));
+            } else {
+                valid.add(movies[i]);
+            }
+        }
+
+        List<Movie> created = moviesStore.addMovies(valid);
+        phase("store");
+        int status = created.isEmpty() ? 422 : 201;
+        String response = gson.toJson(new BatchCreateResponse(created, errors));
+        phase("serialize");
+        sendJson(exchange, status, response);
+        logger.info(() -> String.format("Пакетная загрузка: создано %d, отклонено %d",
+                created.size(), errors.size()));
+    }
+
+    //Разбирает и проверяет элементы пакета параллельно. Корректные фильмы кладет в movies,
+    //возвращает массив ошибок по индексам (null - элемент корректен)
+
+    private AtomicReferenceArray<List<String>> parseBatchItems(List<Object> items, Movie[] movies) {
+        AtomicReferenceArray<List<String>> itemErrors = new AtomicReferenceArray<>(items.size());
+        IntStream.range(0, items.size()).parallel().forEach(i -> {
+            try {
+                Object item = items.get(i);
+                MovieCreateRequest request = item instanceof JsonElement
+                        ? gson.fromJson((JsonElement) item, MovieCreateRequest.class)
+                        : gson.fromJson((String) item, MovieCreateRequest.class);
+                if (request == null) {
+                    itemErrors.set(i, List.of("Элемент пакета не может быть пустым"));
+                    return;
+                }
+                List<String> errors = validator.validate(request);
+                if (errors.isEmpty()) {
+                    movies[i] = validator.toMovie(request);
+                } else {
+                    itemErrors.set(i, errors);
+                }
+            } catch (JsonParseException e) {
+                itemErrors.set(i, List.of("Неверный формат JSON"));
+            }
+        });
+        return itemErrors;
+    }
+
+    //Разбирает JSON из тела запроса прямо из потока, не больше maxSize байт. Если тело больше,
+    //пустое, не читается или не является JSON нужного вида - сам отправляет ошибку и возвращает null
+
+    private <T> T readJsonBody(HttpExchange exchange, Class<T> type, int maxSize, String maxSizeLabel)
+            throws IOException {
+        if (declaredContentLength(exchange) > maxSize) {
+            // Заявленное тело заведомо больше лимита - отказываем, не читая его
+            sendTooLarge(exchange, maxSizeLabel);
+            return null;
+        }
+        ErrorResponse error;
+        try (RequestBodyReader body = new RequestBodyReader(requestBody(exchange), maxSize)) {
+            try {
+                T value = gson.fromJson(body, type);
+                if (value != null) {
+                    return value;
+                }
+                // Gson возвращает null для пустого тела (или только из пробелов) и для литерала null
+                error = new ErrorResponse("Тело запроса не может быть пустым", 400);
+            } catch (JsonParseException e) {
+                // Ошибки чтения тела Gson оборачивает в свои исключения - различаем их по флагам потока
+                if (body.isLimitExceeded()) {
+                    discardRequestBody(exchange);
+                    error = new ErrorResponse("Размер запроса превышает " + maxSizeLabel, 413);
+                } else if (body.isReadFailed()) {
+                    error = new ErrorResponse("Ошибка чтения тела запроса", 400);
+                } else {
+                    logger.warning(() -> String.format("Ошибка парсинга JSON: %s", e.getMessage()));
+                    error = new ErrorResponse("Неверный формат JSON", 400);
+                }
+            }
+        }
+        sendJson(exchange, error.getStatus(), gson.toJson(error));
+        return null;
+    }
+
+    //Отправляет 413 для тела больше лимита (непрочитанный остаток тела отбрасывается)
+
+    private void sendTooLarge(HttpExchange exchange, String maxSizeLabel) throws IOException {
+        discardRequestBody(exchange);
+        ErrorResponse error = new ErrorResponse("Размер запроса превышает " + maxSizeLabel, 413);
+        sendJson(exchange, 413, gson.toJson(error));
+    }
+
+    //Длина тела из заголовка Content-Length или -1, если ее нет или она не число
+
+    private static long declaredContentLength(HttpExchange exchange) {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    //Читает тело запроса не больше maxSize байт. Если тело больше или не читается,
+    //сам отправляет ошибку и возвращает null
+
+    private String readRequestBody(HttpExchange exchange, int maxSize, String maxSizeLabel) throws IOException {
+        if (declaredContentLength(exchange) > maxSize) {
+            sendTooLarge(exchange, maxSizeLabel);
+            return null;
+        }
+        try (InputStream is = requestBody(exchange);
+             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            long totalBytes = 0;
+
+            while ((bytesRead = is.read(buffer)) != -1) {
+                totalBytes += bytesRead;
+                if (totalBytes > maxSize) {
+                    sendTooLarge(exchange, maxSizeLabel);
+                    return null;
+                }
+                baos.write(buffer, 0, bytesRead);
+            }
+
+            return baos.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            ErrorResponse error = new ErrorResponse("Ошибка чтения тела запроса", 400);
+            sendJson(exchange, 400, gson.toJson(error));
+            return null;
+        }
+    }
+
     //DELETE /movies/{id} - удаление фильма
 
     private void handleDeleteMovie(HttpExchange exchange, int id) throws IOException {
@@ -306,6 +899,7 @@ public class MoviesHandler extends BaseHttpHandler {
 
             if (movieOpt.isPresent()) {
                 boolean deleted = moviesStore.deleteMovie(id);
+                phase("store");
                 if (deleted) {
                     sendNoContent(exchange);
                 } else {
@@ -323,68 +917,44 @@ public class MoviesHandler extends BaseHttpHandler {
         }
     }
 
-    //Валидирует данные для создания фильма
-
-    private List<String> validateMovieRequest(MovieCreateRequest request) {
-        List<String> errors = new ArrayList<>();
+    //Разбирает строку query параметров в мапу (значения декодируются из URL-формата).
+    //Параметр без значения ("?year") сохраняется с пустой строкой
 
-        // Проверка: клиент не должен указывать ID
-        if (request.getClientId() != null) {
-            errors.add("ID фильма не должен быть указан при создании. ID генерируется автоматически сервером.");
+    private Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
         }
-
-        // Валидация названия
-        if (request.getName() == null || request.getName().trim().isEmpty()) {
-            errors.add("Название обязательно");
-        } else {
-            String trimmedName = request.getName().trim();
-            if (trimmedName.length() > MAX_NAME_LENGTH) {
-                errors.add(String.format("Название должно быть не более %d символов", MAX_NAME_LENGTH));
-            }
-            // Проверка на недопустимые символы
-            if (trimmedName.contains("\0") || trimmedName.contains("\r") || trimmedName.contains("\n")) {
-                errors.add("Название содержит недопустимые символы");
+        Map<String, String> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
             }
+            int eq = pair.indexOf('=');
+            String name = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
         }
+        return params;
+    }
 
-        // Валидация описания
-        if (request.getDescription() != null) {
-            String description = request.getDescription().trim();
-            if (description.length() > MAX_DESCRIPTION_LENGTH) {
-                errors.add(String.format("Описание должно быть не более %d символов", MAX_DESCRIPTION_LENGTH));
-            }
-        }
+    //Курсор страницы: ID последнего отданного фильма в base64url. Клиенту он непрозрачен,
+    //поэтому формат можно будет поменять, не ломая API
 
-        // Валидация даты
-        if (request.getReleaseDate() == null || request.getReleaseDate().trim().isEmpty()) {
-            errors.add("Дата выпуска обязательна");
-        } else {
-            try {
-                LocalDate releaseDate = LocalDate.parse(request.getReleaseDate().trim());
-                LocalDate now = LocalDate.now();
+    private static String encodeCursor(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Integer.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
 
-                if (releaseDate.getYear() < MIN_YEAR) {
-                    errors.add(String.format("Год выпуска должен быть не раньше %d", MIN_YEAR));
-                }
-                if (releaseDate.getYear() > now.getYear() + 1) {
-                    errors.add("Год выпуска не может быть в далеком будущем");
-                }
-                if (releaseDate.isAfter(now.plusYears(1))) {
-                    errors.add("Дата выпуска не может быть больше чем на 1 год в будущем");
-                }
-            } catch (DateTimeParseException e) {
-                errors.add("Неверный формат даты. Используйте YYYY-MM-DD");
-            }
-        }
+    //Возвращает ID из курсора или -1, если курсор испорчен
 
-        // Валидация продолжительности
-        if (request.getDuration() < MIN_DURATION) {
-            errors.add(String.format("Продолжительность должна быть не менее %d минуты", MIN_DURATION));
-        } else if (request.getDuration() > MAX_DURATION_HOURS * 60) {
-            errors.add(String.format("Продолжительность не может превышать %d часов", MAX_DURATION_HOURS));
+    private static int decodeCursor(String cursor) {
+        try {
+            int id = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            return id >= 0 ? id : -1;
+        } catch (IllegalArgumentException e) {
+            return -1;
         }
-
-        return errors;
     }
 
     //Отправляет ошибку 405 Method Not Allowed
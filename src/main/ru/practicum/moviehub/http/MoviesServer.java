@@ -1,23 +1,98 @@
 package ru.practicum.moviehub.http;
 
-import com.sun.net.httpserver.HttpServer;
+import ru.practicum.moviehub.config.MovieHubConfig;
+import ru.practicum.moviehub.http.nio.NioServerEngine;
 import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.WriteAheadLog;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 //HTTP сервер для MovieHub API
 public class MoviesServer {
-    private final HttpServer server;
+    // Очередь принятых ядром соединений. Значение по умолчанию (50) при сотнях
+    // одновременных клиентов приводит к сбросу SYN и повторам соединения через секунды
+    private static final int ACCEPT_BACKLOG = 1024;
+
+    // Слушатели (движки) с общим хранилищем, обработчиком и executor
+    private final List<ServerEngine> listeners = new ArrayList<>();
+    private final List<Integer> ports = new ArrayList<>();
     private final MoviesStore moviesStore;
+    private final Path snapshotPath;
+    private final ScheduledExecutorService snapshotScheduler;
+    private final ExecutorService requestExecutor;
+    private final ServerEngineType engineType;
+    private final AccessLog accessLog;
+    private final HttpMetrics metrics = new HttpMetrics();
 
     public MoviesServer() throws IOException {
-        this.moviesStore = new MoviesStore();
-        server = HttpServer.create(new InetSocketAddress(8080), 0);
-        server.createContext("/movies", new MoviesHandler(moviesStore));
+        this(MovieHubConfig.fromSystemProperties());
+    }
+
+    public MoviesServer(MovieHubConfig config) throws IOException {
+        this.moviesStore = new MoviesStore(config.getStorageMode());
+        this.snapshotPath = config.getSnapshotPath();
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            // Снимок дает основную часть каталога, журнал - изменения после него
+            int loaded = moviesStore.loadSnapshot(snapshotPath);
+            System.out.println("Загружено фильмов из снимка: " + loaded);
+        }
+        if (config.getWalPath() != null) {
+            // Восстанавливаем каталог из журнала до того, как начнем принимать запросы
+            moviesStore.attachWriteAheadLog(WriteAheadLog.open(config.getWalPath(),
+                    config.getWalSyncPolicy(), config.getWalSyncIntervalMillis()));
+        }
+        // Индексы после восстановления строятся в фоне, сервер начинает отвечать сразу
+        moviesStore.buildIndexesInBackground();
+        engineType = config.getServerEngine();
+
+        // null - обработка в потоке движка (режим INLINE)
+        requestExecutor = createRequestExecutor(config);
+        accessLog = AccessLog.create(config.getAccessLogCapacity(), config.getAccessLogSampleEvery());
+        MoviesHandler handler = new MoviesHandler(moviesStore, config, accessLog, metrics);
+        MetricsHandler metricsHandler = new MetricsHandler(metrics);
+        registerGauges();
+
+        // Несколько слушателей: у NIO движка - на одном порту через SO_REUSEPORT (ядро само
+        // раздает им соединения), иначе - на диапазоне портов начиная с основного.
+        // Ядра делятся между слушателями поровну
+        int listenerCount = Math.max(1, config.getListeners());
+        int cores = Runtime.getRuntime().availableProcessors();
+        boolean sharedPort = listenerCount > 1 && engineType == ServerEngineType.NIO
+                && NioServerEngine.isReusePortSupported();
+        int loopsPerListener = Math.max(1, cores / listenerCount);
+        for (int i = 0; i < listenerCount; i++) {
+            int port = sharedPort ? config.getPort() : config.getPort() + i;
+            ServerEngine engine = createEngine(engineType, new InetSocketAddress(port), loopsPerListener, sharedPort);
+            engine.createContext("/movies", handler);
+            engine.createContext("/metrics", metricsHandler);
+            engine.setExecutor(requestExecutor);
+            listeners.add(engine);
+            ports.add(port);
+        }
 
-        // Устанавливаем executor (null означает использование дефолтного)
-        server.setExecutor(null);
+        if (snapshotPath != null && config.getSnapshotIntervalSeconds() > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::writeSnapshot,
+                    config.getSnapshotIntervalSeconds(), config.getSnapshotIntervalSeconds(), TimeUnit.SECONDS);
+        } else {
+            snapshotScheduler = null;
+        }
     }
 
     //Очищает хранилище фильмов
@@ -25,15 +100,100 @@ public class MoviesServer {
         moviesStore.clear();
     }
 
+    //Возвращает хранилище фильмов (например, для импорта до старта сервера)
+    public MoviesStore getMoviesStore() {
+        return moviesStore;
+    }
+
     //Запускает сервер
     public void start() {
-        server.start();
-        System.out.println("MovieHub сервер запущен на порту 8080");
+        for (ServerEngine listener : listeners) {
+            listener.start();
+        }
+        System.out.printf("MovieHub сервер запущен: движок %s, слушателей %d, порты %s%n",
+                engineType, listeners.size(), ports.stream().distinct().toList());
     }
 
     //Останавливает сервер
     public void stop() {
-        server.stop(0);
+        for (ServerEngine listener : listeners) {
+            listener.stop();
+        }
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+        if (accessLog != null) {
+            // Дописываем записи последних запросов
+            accessLog.close();
+        }
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Свежий снимок ускоряет следующий запуск: журнал почти не придется воспроизводить
+        if (snapshotPath != null) {
+            writeSnapshot();
+        }
+        try {
+            moviesStore.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка при закрытии журнала: " + e.getMessage());
+        }
         System.out.println("Сервер остановлен");
     }
+
+    //Показатели, которые снимаются в момент выгрузки метрик
+
+    private void registerGauges() {
+        metrics.registerGauge("store_movies", "Фильмов в хранилище", moviesStore::size);
+        metrics.registerGauge("executor_queue_depth", "Запросов в очереди executor (0 - очереди нет)", () ->
+                requestExecutor instanceof ThreadPoolExecutor
+                        ? ((ThreadPoolExecutor) requestExecutor).getQueue().size() : 0);
+    }
+
+    //Создает HTTP движок выбранного типа
+
+    private static ServerEngine createEngine(ServerEngineType type, InetSocketAddress address,
+                                             int loops, boolean reusePort) throws IOException {
+        if (type == ServerEngineType.NIO) {
+            return new NioServerEngine(address, ACCEPT_BACKLOG, loops, reusePort);
+        }
+        return new JdkServerEngine(address, ACCEPT_BACKLOG);
+    }
+
+    //Создает executor для обработки запросов по настройкам (null - обработка в диспетчере)
+
+    private static ExecutorService createRequestExecutor(MovieHubConfig config) {
+        switch (config.getExecutorMode()) {
+            case VIRTUAL:
+                return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("request-", 0).factory());
+            case PLATFORM_POOL:
+                AtomicInteger threadNumber = new AtomicInteger();
+                int threads = Math.max(1, config.getExecutorThreads());
+                return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(Math.max(1, config.getExecutorQueueCapacity())),
+                        r -> {
+                            Thread thread = new Thread(r, "request-" + threadNumber.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        // Очередь полна - запрос выполняет диспетчер, новые соединения ждут
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+            default:
+                return null;
+        }
+    }
+
+    //Пишет снимок каталога, не прерывая обработку запросов
+    private void writeSnapshot() {
+        try {
+            moviesStore.writeSnapshot(snapshotPath);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка при записи снимка: " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package ru.practicum.moviehub.http;
+
+//Замер фаз обработки одного запроса (чтение, разбор, валидация, хранилище, сериализация).
+//Фаза длится от конца предыдущей (или начала запроса) до вызова phase(name); повторная фаза
+//с тем же именем прибавляется к прежней. Объект принадлежит потоку запроса, синхронизации нет
+
+final class PhaseTimer {
+    private static final int MAX_PHASES = 8;
+
+    private final long startNanos = System.nanoTime();
+    private long markNanos = startNanos;
+    private final String[] names = new String[MAX_PHASES];
+    private final long[] durations = new long[MAX_PHASES];
+    private int count;
+
+    //Завершает фазу name
+
+    void phase(String name) {
+        long now = System.nanoTime();
+        long duration = now - markNanos;
+        markNanos = now;
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) {
+                durations[i] += duration;
+                return;
+            }
+        }
+        if (count < MAX_PHASES) {
+            names[count] = name;
+            durations[count] = duration;
+            count++;
+        }
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    //Значение заголовка Server-Timing: фазы и total с длительностями в миллисекундах
+
+    String toServerTiming() {
+        StringBuilder header = new StringBuilder(count * 24 + 24);
+        for (int i = 0; i < count; i++) {
+            header.append(names[i]).append(";dur=");
+            appendMillis(header, durations[i]);
+            header.append(", ");
+        }
+        header.append("total;dur=");
+        appendMillis(header, elapsedNanos());
+        return header.toString();
+    }
+
+    //Разбивка для журнала медленных запросов: "parse=1.250ms store=0.031ms"
+
+    String describe() {
+        StringBuilder line = new StringBuilder(count * 20);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            line.append(names[i]).append('=');
+            appendMillis(line, durations[i]);
+            line.append("ms");
+        }
+        return line.toString();
+    }
+
+    //Миллисекунды с тремя знаками после точки, без String.format
+
+    static void appendMillis(StringBuilder out, long nanos) {
+        long micros = Math.max(0, nanos) / 1000;
+        out.append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            out.append(fraction < 10 ? "00" : "0");
+        }
+        out.append(fraction);
+    }
+}
\ No newline at end of file
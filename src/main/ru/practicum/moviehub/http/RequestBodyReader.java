@@ -0,0 +1,176 @@
+package ru.practicum.moviehub.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Тело запроса как поток символов UTF-8 с ограничением размера. Gson читает JSON прямо
+//из него, поэтому тело не копируется ни в ByteArrayOutputStream, ни в String.
+//Из сокета читается не больше лимита плюс один байт: тело сверх лимита обнаруживается
+//сразу, а не после чтения целиком. Буфер байт и декодер берутся из общего пула.
+//Некорректные последовательности UTF-8 заменяются на U+FFFD, как при new String(bytes, UTF_8)
+
+final class RequestBodyReader extends Reader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED = 256;
+
+    private static final ConcurrentLinkedQueue<DecodeState> FREE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private final InputStream in;
+    private final long limit;
+    private DecodeState state;
+    private long received;
+    private boolean eof;
+    // Декодер уже сброшен: повторный decode на нем бросает IllegalStateException
+    private boolean flushed;
+    private boolean limitExceeded;
+    private boolean readFailed;
+
+    // Второй символ суррогатной пары, не поместившийся в буфер читателя
+    private int pendingChar = -1;
+
+    RequestBodyReader(InputStream in, long limit) {
+        this.in = in;
+        this.limit = limit;
+        this.state = acquire();
+    }
+
+    //Тело оказалось больше лимита
+
+    boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    //Тело не удалось дочитать из сокета (клиент оборвал соединение и т.п.)
+
+    boolean isReadFailed() {
+        return readFailed;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (state == null) {
+            throw new IOException("Тело запроса уже закрыто");
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (pendingChar >= 0) {
+            buffer[offset] = (char) pendingChar;
+            pendingChar = -1;
+            return 1;
+        }
+        if (flushed) {
+            // Gson после документа проверяет, что тело дочитано, и читает снова
+            return -1;
+        }
+        CharsetDecoder decoder = state.decoder;
+        ByteBuffer bytes = state.bytes;
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        while (true) {
+            if (decoder.decode(bytes, out, eof).isOverflow() && out.position() == offset) {
+                // Места на один символ, а следующий - суррогатная пара: отдаем его по половине
+                return readSurrogatePair(buffer, offset);
+            }
+            if (out.position() > offset) {
+                return out.position() - offset;
+            }
+            if (eof) {
+                decoder.flush(out);
+                flushed = true;
+                return out.position() > offset ? out.position() - offset : -1;
+            }
+            fill();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (state == null) {
+            return;
+        }
+        release(state);
+        state = null;
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Тело уже прочитано, остаток соединения - забота HTTP сервера
+        }
+    }
+
+    //Дочитывает байты из сокета в буфер, не дальше лимита плюс одного байта
+
+    private void fill() throws IOException {
+        ByteBuffer bytes = state.bytes;
+        bytes.compact();
+        int max = (int) Math.min(bytes.remaining(), limit + 1 - received);
+        int read;
+        try {
+            read = in.read(bytes.array(), bytes.arrayOffset() + bytes.position(), max);
+        } catch (IOException e) {
+            readFailed = true;
+            bytes.flip();
+            throw e;
+        }
+        if (read < 0) {
+            eof = true;
+        } else {
+            bytes.position(bytes.position() + read);
+            received += read;
+        }
+        bytes.flip();
+        if (received > limit) {
+            limitExceeded = true;
+            throw new IOException("Размер тела запроса превышает " + limit + " байт");
+        }
+    }
+
+    private int readSurrogatePair(char[] buffer, int offset) throws IOException {
+        char[] pair = new char[2];
+        CharBuffer out = CharBuffer.wrap(pair);
+        while (state.decoder.decode(state.bytes, out, eof).isUnderflow() && out.position() < 2 && !eof) {
+            fill();
+        }
+        buffer[offset] = pair[0];
+        if (out.position() > 1) {
+            pendingChar = pair[1];
+        }
+        return out.position() > 0 ? 1 : -1;
+    }
+
+    private static DecodeState acquire() {
+        DecodeState state = FREE.poll();
+        if (state == null) {
+            return new DecodeState();
+        }
+        POOLED.decrementAndGet();
+        state.bytes.clear().flip();
+        state.decoder.reset();
+        return state;
+    }
+
+    private static void release(DecodeState state) {
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            FREE.offer(state);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+
+    //Буфер байт и декодер UTF-8 одного чтения - то, что переиспользуется через пул
+
+    private static final class DecodeState {
+        final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
\ No newline at end of file
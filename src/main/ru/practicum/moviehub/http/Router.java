@@ -0,0 +1,212 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+//Маршрутизатор: метод и шаблон пути ("/movies/{id}") -> обработчик.
+//Шаблоны один раз раскладываются в дерево по сегментам пути, а запрос проходит по нему
+//за один проход по строке пути - без split, подстрок и регулярных выражений.
+//Переменная пути - одна на маршрут и всегда целое число, оно передается обработчику как int.
+//В каждом узле литерал проверяется раньше переменной: "/movies/suggest" выигрывает у
+//"/movies/{id}". Завершающие '/' в пути игнорируются
+
+public class Router {
+
+    //Итог маршрутизации. Если маршрут не найден, побеждает самый "близкий" к успеху результат:
+    //не число в переменной важнее чужого метода, а тот важнее отсутствия пути
+
+    public enum Result {
+        NOT_FOUND,           // ни один шаблон не подошел к пути
+        METHOD_NOT_ALLOWED,  // путь подошел, но для другого метода
+        BAD_VARIABLE,        // путь и метод подошли, но переменная пути - не целое число
+        ROUTED               // обработчик вызван
+    }
+
+    //Обработчик маршрута. pathVariable - значение переменной пути (0, если ее нет)
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle(HttpExchange exchange, int pathVariable) throws IOException;
+    }
+
+    // Значение переменной, которое не является целым числом (вне диапазона int)
+    private static final long BAD_VALUE = Long.MIN_VALUE;
+
+    private final Node root = new Node();
+
+    //Добавляет маршрут. Шаблон - абсолютный путь, сегмент {имя} - целочисленная переменная
+
+    public Router add(String method, String pattern, Handler handler) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Шаблон пути должен начинаться с '/': " + pattern);
+        }
+        Node node = root;
+        boolean hasVariable = false;
+        if (pattern.length() > 1) {
+            for (String segment : pattern.substring(1).split("/", -1)) {
+                if (segment.startsWith("{") && segment.endsWith("}")) {
+                    if (hasVariable) {
+                        throw new IllegalArgumentException("Поддерживается одна переменная пути: " + pattern);
+                    }
+                    hasVariable = true;
+                    node = node.variableChild();
+                } else {
+                    node = node.literalChild(segment);
+                }
+            }
+        }
+        node.setHandler(method, handler, pattern);
+        return this;
+    }
+
+    //Находит маршрут для метода и пути и вызывает его обработчик
+
+    public Result dispatch(HttpExchange exchange, String method, String path) throws IOException {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return Result.NOT_FOUND;
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        // У пути "/" сегментов нет - сразу корень
+        int start = end == 1 ? 2 : 1;
+        return walk(root, path, start, end, 0, method, exchange);
+    }
+
+    //Спускается по дереву с сегмента, который начинается в position: сначала литерал,
+    //затем переменная. Из неудачных вариантов возвращается самый близкий к успеху
+
+    private Result walk(Node node, String path, int position, int end, long variable, String method,
+                        HttpExchange exchange) throws IOException {
+        if (position > end) {
+            Handler handler = node.handler(method);
+            if (handler == null) {
+                return node.hasHandlers() ? Result.METHOD_NOT_ALLOWED : Result.NOT_FOUND;
+            }
+            if (variable == BAD_VALUE) {
+                return Result.BAD_VARIABLE;
+            }
+            handler.handle(exchange, (int) variable);
+            return Result.ROUTED;
+        }
+
+        int segmentEnd = path.indexOf('/', position);
+        if (segmentEnd < 0 || segmentEnd > end) {
+            segmentEnd = end;
+        }
+        Result best = Result.NOT_FOUND;
+        Node literal = node.findLiteral(path, position, segmentEnd);
+        if (literal != null) {
+            best = walk(literal, path, segmentEnd + 1, end, variable, method, exchange);
+            if (best == Result.ROUTED) {
+                return best;
+            }
+        }
+        if (node.variable != null) {
+            long value = parseInt(path, position, segmentEnd);
+            Result result = walk(node.variable, path, segmentEnd + 1, end, value, method, exchange);
+            if (result.compareTo(best) > 0) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    //Целое число из path[from, to) в тех же границах, что принимает Integer.parseInt
+    //(знак, только цифры, диапазон int), или BAD_VALUE - без исключений и подстрок
+
+    private static long parseInt(String path, int from, int to) {
+        boolean negative = false;
+        int position = from;
+        if (position < to && (path.charAt(position) == '-' || path.charAt(position) == '+')) {
+            negative = path.charAt(position) == '-';
+            position++;
+        }
+        if (position == to) {
+            return BAD_VALUE;
+        }
+        long value = 0;
+        for (; position < to; position++) {
+            char c = path.charAt(position);
+            if (c < '0' || c > '9') {
+                return BAD_VALUE;
+            }
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return BAD_VALUE;
+            }
+        }
+        if (negative) {
+            return -value;
+        }
+        return value <= Integer.MAX_VALUE ? value : BAD_VALUE;
+    }
+
+    //Узел дерева: дочерние литералы, дочерняя переменная и обработчики по методам.
+    //Детей и методов в узле единицы, поэтому это массивы с линейным поиском, а не мапы
+
+    private static final class Node {
+        private String[] literalNames = new String[0];
+        private Node[] literalNodes = new Node[0];
+        private Node variable;
+        private String[] methods = new String[0];
+        private Handler[] handlers = new Handler[0];
+
+        Node findLiteral(String path, int from, int to) {
+            int length = to - from;
+            for (int i = 0; i < literalNames.length; i++) {
+                String name = literalNames[i];
+                if (name.length() == length && path.regionMatches(from, name, 0, length)) {
+                    return literalNodes[i];
+                }
+            }
+            return null;
+        }
+
+        Handler handler(String method) {
+            for (int i = 0; i < methods.length; i++) {
+                if (methods[i].equals(method)) {
+                    return handlers[i];
+                }
+            }
+            return null;
+        }
+
+        boolean hasHandlers() {
+            return methods.length > 0;
+        }
+
+        Node literalChild(String name) {
+            for (int i = 0; i < literalNames.length; i++) {
+                if (literalNames[i].equals(name)) {
+                    return literalNodes[i];
+                }
+            }
+            literalNames = Arrays.copyOf(literalNames, literalNames.length + 1);
+            literalNodes = Arrays.copyOf(literalNodes, literalNodes.length + 1);
+            literalNames[literalNames.length - 1] = name;
+            literalNodes[literalNodes.length - 1] = new Node();
+            return literalNodes[literalNodes.length - 1];
+        }
+
+        Node variableChild() {
+            if (variable == null) {
+                variable = new Node();
+            }
+            return variable;
+        }
+
+        void setHandler(String method, Handler handler, String pattern) {
+            if (handler(method) != null) {
+                throw new IllegalArgumentException("Маршрут уже задан: " + method + " " + pattern);
+            }
+            methods = Arrays.copyOf(methods, methods.length + 1);
+            handlers = Arrays.copyOf(handlers, handlers.length + 1);
+            methods[methods.length - 1] = method;
+            handlers[handlers.length - 1] = handler;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpHandler;
+
+import java.util.concurrent.Executor;
+
+//HTTP движок, на котором работает MoviesServer. Обработчики пишутся на API
+//com.sun.net.httpserver (HttpHandler/HttpExchange) и не зависят от выбранного движка
+
+public interface ServerEngine {
+
+    //Регистрирует обработчик для путей, начинающихся с path
+
+    void createContext(String path, HttpHandler handler);
+
+    //Задает executor для обработчиков (null - выполнять в потоке движка)
+
+    void setExecutor(Executor executor);
+
+    //Начинает принимать соединения
+
+    void start();
+
+    //Перестает принимать соединения и закрывает открытые
+
+    void stop();
+}
\ No newline at end of file
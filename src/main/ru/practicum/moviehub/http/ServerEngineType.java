@@ -0,0 +1,10 @@
+package ru.practicum.moviehub.http;
+
+//Реализация HTTP движка MoviesServer
+
+public enum ServerEngineType {
+    // com.sun.net.httpserver.HttpServer из JDK (по умолчанию)
+    JDK,
+    // Собственный неблокирующий движок на NIO: цикл событий на ядро, keep-alive и pipelining
+    NIO
+}
\ No newline at end of file
@@ -0,0 +1,180 @@
+package ru.practicum.moviehub.http.nio;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+//Цикл событий NIO движка: один поток, один Selector. Читает соединения, разбирает
+//запросы и передает их обработчикам. Задачи из других потоков (новое соединение,
+//завершение ответа) ставятся в очередь и выполняются в потоке цикла
+
+final class EventLoop implements Runnable {
+    private static final Logger logger = Logger.getLogger(EventLoop.class.getName());
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    // Как часто проверять простаивающие соединения
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 1000;
+
+    private final NioServerEngine engine;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Один прямой буфер чтения на цикл: соединения без недочитанных данных своих буферов не держат
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile boolean running = true;
+
+    private EventLoop[] acceptTargets;
+    private int nextTarget;
+    private long lastIdleCheck;
+
+    EventLoop(NioServerEngine engine, String name) throws IOException {
+        this.engine = engine;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    //Этот цикл принимает соединения и раздает их циклам targets по кругу
+
+    void acceptFrom(ServerSocketChannel serverChannel, EventLoop[] targets) throws IOException {
+        this.acceptTargets = targets;
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    //Выполняет задачу в потоке цикла на ближайшей итерации (даже если вызван из него же -
+    //так обработка в цикле без executor не уходит в рекурсию через завершение ответа)
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(IDLE_CHECK_INTERVAL_MILLIS);
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel());
+                    } else if (key.isReadable()) {
+                        ((NioConnection) key.attachment()).onReadable(readBuffer);
+                    }
+                }
+                runTasks();
+                closeIdleConnections();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.severe(() -> "Цикл событий остановлен из-за ошибки: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    //Регистрирует принятое соединение в этом цикле (вызывается в потоке цикла)
+
+    void register(SocketChannel channel) {
+        try {
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new NioConnection(engine, this, channel, key));
+        } catch (IOException e) {
+            closeQuietly(channel);
+        }
+    }
+
+    private void accept(ServerSocketChannel serverChannel) {
+        SocketChannel channel;
+        // За одно пробуждение принимаем все ожидающие соединения
+        while (true) {
+            try {
+                channel = serverChannel.accept();
+                if (channel == null) {
+                    return;
+                }
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                logger.warning(() -> "Ошибка при приеме соединения: " + e.getMessage());
+                return;
+            }
+            EventLoop target = acceptTargets[nextTarget];
+            nextTarget = (nextTarget + 1) % acceptTargets.length;
+            SocketChannel accepted = channel;
+            target.execute(() -> target.register(accepted));
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warning(() -> "Ошибка в задаче цикла событий: " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck < IDLE_CHECK_INTERVAL_MILLIS) {
+            return;
+        }
+        lastIdleCheck = now;
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection) {
+                connection.closeIfIdle(now);
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection) {
+                connection.close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Цикл уже остановлен
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Соединение уже закрыто
+        }
+    }
+}
\ No newline at end of file
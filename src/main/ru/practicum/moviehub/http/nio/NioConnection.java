@@ -0,0 +1,412 @@
+package ru.practicum.moviehub.http.nio;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//Соединение NIO движка. Чтение и разбор запросов идут в потоке цикла событий, запись
+//ответа - в потоке обработчика. Пока запрос обрабатывается, соединение не читается:
+//следующие запросы (pipelining) ждут в буфере и разбираются после ответа на текущий.
+//Цикл событий сам в сокет не ждет: 100 Continue и ответ на испорченный запрос, не
+//поместившиеся в буфер сокета, дописываются в потоке обработчиков
+
+final class NioConnection {
+    // Ограничения запроса: строка запроса с заголовками и тело. Тело не больше самого
+    // большого лимита обработчиков (64 МБ у POST /movies/batch), точнее проверяет обработчик
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+    // Соединение без запросов дольше этого закрывается
+    private static final long IDLE_TIMEOUT_MILLIS = 60_000;
+    private static final long WRITE_TIMEOUT_MILLIS = 30_000;
+
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final NioServerEngine engine;
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final InetSocketAddress remoteAddress;
+    private final InetSocketAddress localAddress;
+
+    // Недоразобранные входящие данные: in[inStart, inEnd)
+    private byte[] in;
+    private int inStart;
+    private int inEnd;
+
+    // Разобранные заголовки запроса, тело которого еще не дочитано
+    private PendingRequest pending;
+
+    private boolean inFlight;
+    // Служебный ответ дописывается в потоке обработчиков - новые запросы не запускаются
+    private boolean rawWriting;
+    private long lastActive = System.currentTimeMillis();
+    private Selector writeSelector;
+    private volatile boolean closed;
+
+    NioConnection(NioServerEngine engine, EventLoop loop, SocketChannel channel, SelectionKey key) throws IOException {
+        this.engine = engine;
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+        this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    InetSocketAddress remoteAddress() {
+        return remoteAddress;
+    }
+
+    InetSocketAddress localAddress() {
+        return localAddress;
+    }
+
+    BufferPool bufferPool() {
+        return engine.bufferPool();
+    }
+
+    //Сокет готов к чтению (поток цикла)
+
+    void onReadable(ByteBuffer readBuffer) {
+        try {
+            while (true) {
+                readBuffer.clear();
+                int read = channel.read(readBuffer);
+                if (read < 0) {
+                    close();
+                    return;
+                }
+                if (read == 0) {
+                    break;
+                }
+                readBuffer.flip();
+                append(readBuffer);
+                if (read < readBuffer.capacity()) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        lastActive = System.currentTimeMillis();
+        processRequests();
+    }
+
+    //Разбирает и запускает буферизованные запросы, пока не начнется обработка одного из них
+
+    private void processRequests() {
+        while (!inFlight && !rawWriting && !closed) {
+            NioHttpExchange exchange;
+            try {
+                exchange = parseNext();
+            } catch (BadRequestException e) {
+                sendErrorAndClose(e.status, e.getMessage());
+                return;
+            }
+            if (exchange == null) {
+                return;
+            }
+            inFlight = true;
+            // Пока идет ответ, новые данные не читаем - их заберем после него
+            key.interestOps(0);
+            engine.dispatch(exchange);
+        }
+    }
+
+    //Ответ на запрос отправлен (вызывается из потока обработчика)
+
+    void requestCompleted(boolean keepAlive) {
+        loop.execute(() -> {
+            if (!keepAlive) {
+                close();
+                return;
+            }
+            inFlight = false;
+            lastActive = System.currentTimeMillis();
+            processRequests();
+            if (!inFlight && !closed) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        });
+    }
+
+    //Разбирает следующий полный запрос из буфера или возвращает null, если данных мало
+
+    private NioHttpExchange parseNext() throws BadRequestException {
+        if (pending == null) {
+            int headerEnd = indexOfHeaderEnd();
+            if (headerEnd < 0) {
+                if (inEnd - inStart > MAX_HEADER_BYTES) {
+                    throw new BadRequestException(431, "Request Header Fields Too Large");
+                }
+                compactIfEmpty();
+                return null;
+            }
+            pending = parseHead(headerEnd);
+            inStart = headerEnd + 4;
+            if (pending.expectContinue && inEnd - inStart < pending.contentLength) {
+                writeRaw(CONTINUE, false);
+            }
+        }
+
+        if (inEnd - inStart < pending.contentLength) {
+            // Буфер растет по мере прихода тела, а не заранее на весь Content-Length
+            return null;
+        }
+        byte[] body = Arrays.copyOfRange(in, inStart, inStart + pending.contentLength);
+        inStart += pending.contentLength;
+        compactIfEmpty();
+
+        PendingRequest request = pending;
+        pending = null;
+        return new NioHttpExchange(this, request.method, request.uri, request.protocol,
+                request.headers, body, request.keepAlive, engine.findContext(request.uri.getPath()));
+    }
+
+    private PendingRequest parseHead(int headerEnd) throws BadRequestException {
+        String head = new String(in, inStart, headerEnd - inStart, StandardCharsets.ISO_8859_1);
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            throw new BadRequestException(400, "Bad Request");
+        }
+
+        PendingRequest request = new PendingRequest();
+        request.method = requestLine[0];
+        request.protocol = requestLine[2];
+        try {
+            request.uri = new URI(requestLine[1]);
+        } catch (URISyntaxException e) {
+            throw new BadRequestException(400, "Bad Request");
+        }
+        if (request.uri.getPath() == null) {
+            throw new BadRequestException(400, "Bad Request");
+        }
+
+        Headers headers = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                throw new BadRequestException(400, "Bad Request");
+            }
+            headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+        }
+        request.headers = headers;
+
+        if (headers.containsKey("Transfer-Encoding")) {
+            // Тело запроса принимается только с Content-Length
+            throw new BadRequestException(411, "Length Required");
+        }
+        String contentLength = headers.getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                long length = Long.parseLong(contentLength.trim());
+                if (length < 0) {
+                    throw new BadRequestException(400, "Bad Request");
+                }
+                if (length > MAX_BODY_BYTES) {
+                    throw new BadRequestException(413, "Payload Too Large");
+                }
+                request.contentLength = (int) length;
+            } catch (NumberFormatException e) {
+                throw new BadRequestException(400, "Bad Request");
+            }
+        }
+
+        String connection = headers.getFirst("Connection");
+        request.keepAlive = request.protocol.equals("HTTP/1.1")
+                ? !"close".equalsIgnoreCase(connection)
+                : "keep-alive".equalsIgnoreCase(connection);
+        request.expectContinue = "100-continue".equalsIgnoreCase(headers.getFirst("Expect"));
+        return request;
+    }
+
+    private int indexOfHeaderEnd() {
+        for (int i = inStart; i + 3 < inEnd; i++) {
+            if (in[i] == '\r' && in[i + 1] == '\n' && in[i + 2] == '\r' && in[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(ByteBuffer data) {
+        int length = data.remaining();
+        ensureCapacity(length);
+        data.get(in, inEnd, length);
+        inEnd += length;
+    }
+
+    //Гарантирует место еще для extra байт после inEnd (сдвигая данные к началу или расширяя)
+
+    private void ensureCapacity(int extra) {
+        int used = inEnd - inStart;
+        if (in == null) {
+            in = new byte[Math.max(extra, 4096)];
+            inStart = 0;
+            inEnd = 0;
+            return;
+        }
+        if (in.length - inEnd >= extra) {
+            return;
+        }
+        byte[] target = in.length - used >= extra
+                ? in
+                : new byte[Math.max(used + extra, Math.min(in.length * 2, MAX_HEADER_BYTES + MAX_BODY_BYTES))];
+        System.arraycopy(in, inStart, target, 0, used);
+        in = target;
+        inStart = 0;
+        inEnd = used;
+    }
+
+    //Отпускает буфер соединения, когда в нем ничего не осталось
+
+    private void compactIfEmpty() {
+        if (in != null && inStart == inEnd) {
+            in = null;
+            inStart = 0;
+            inEnd = 0;
+        }
+    }
+
+    //Пишет все буферы в сокет. Если буфер сокета полон, ждет готовности к записи
+
+    void writeFully(ByteBuffer... buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            long written = channel.write(buffers);
+            remaining -= written;
+            if (written == 0) {
+                awaitWritable();
+            }
+        }
+    }
+
+    private void awaitWritable() throws IOException {
+        if (closed) {
+            throw new IOException("Соединение закрыто");
+        }
+        if (writeSelector == null) {
+            writeSelector = Selector.open();
+            channel.register(writeSelector, SelectionKey.OP_WRITE);
+        }
+        if (writeSelector.select(WRITE_TIMEOUT_MILLIS) == 0) {
+            throw new IOException("Клиент не принимает данные дольше " + WRITE_TIMEOUT_MILLIS + " мс");
+        }
+        writeSelector.selectedKeys().clear();
+    }
+
+    //Пишет служебный ответ из потока цикла. Что не ушло в сокет сразу, дописывается в потоке
+    //обработчиков, чтобы медленный клиент не держал цикл событий (поток цикла)
+
+    private void writeRaw(byte[] bytes, boolean closeAfter) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            channel.write(buffer);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (!buffer.hasRemaining()) {
+            if (closeAfter) {
+                close();
+            }
+            return;
+        }
+        rawWriting = true;
+        engine.dispatch(() -> {
+            boolean written;
+            try {
+                writeFully(buffer);
+                written = true;
+            } catch (IOException e) {
+                written = false;
+            }
+            boolean keepOpen = written && !closeAfter;
+            loop.execute(() -> {
+                rawWriting = false;
+                if (!keepOpen) {
+                    close();
+                    return;
+                }
+                // Пока шла запись, могло дочитаться тело запроса
+                processRequests();
+            });
+        });
+    }
+
+    private void sendErrorAndClose(int status, String reason) {
+        String response = "HTTP/1.1 " + status + " " + reason + "\r\n"
+                + "Content-Length: 0\r\n"
+                + "Connection: close\r\n\r\n";
+        // Остаток входящих данных после испорченного запроса не нужен
+        key.interestOps(0);
+        writeRaw(response.getBytes(StandardCharsets.US_ASCII), true);
+    }
+
+    //Закрывает соединение, если оно простаивает дольше таймаута (поток цикла)
+
+    void closeIfIdle(long now) {
+        if (!inFlight && !rawWriting && now - lastActive > IDLE_TIMEOUT_MILLIS) {
+            close();
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Соединение уже закрыто
+        }
+        if (writeSelector != null) {
+            try {
+                writeSelector.close();
+            } catch (IOException e) {
+                // Селектор уже закрыт
+            }
+        }
+        in = null;
+    }
+
+    //Заголовки запроса, тело которого еще читается
+
+    private static final class PendingRequest {
+        String method;
+        URI uri;
+        String protocol;
+        Headers headers;
+        int contentLength;
+        boolean keepAlive;
+        boolean expectContinue;
+    }
+
+    //Запрос нельзя разобрать - отвечаем статусом и закрываем соединение
+
+    private static final class BadRequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequestException(int status, String reason) {
+            super(reason);
+            this.status = status;
+        }
+    }
+}
\ No newline at end of file
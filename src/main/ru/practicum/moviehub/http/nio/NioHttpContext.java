@@ -0,0 +1,68 @@
+package ru.practicum.moviehub.http.nio;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Контекст (префикс пути + обработчик) NIO движка. Фильтры и аутентификация не поддерживаются:
+//попытка их подключить бросает UnsupportedOperationException, а не молча игнорируется
+
+final class NioHttpContext extends HttpContext {
+    private final String path;
+    private volatile HttpHandler handler;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    NioHttpContext(String path, HttpHandler handler) {
+        this.path = path;
+        this.handler = handler;
+    }
+
+    @Override
+    public HttpHandler getHandler() {
+        return handler;
+    }
+
+    @Override
+    public void setHandler(HttpHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public HttpServer getServer() {
+        // Контекст не принадлежит HttpServer из JDK
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public List<Filter> getFilters() {
+        // Неизменяемый пустой список: add() бросает исключение
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Authenticator setAuthenticator(Authenticator auth) {
+        throw new UnsupportedOperationException("Аутентификация не поддерживается NIO движком");
+    }
+
+    @Override
+    public Authenticator getAuthenticator() {
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,405 @@
+package ru.practicum.moviehub.http.nio;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+//HttpExchange поверх соединения NIO движка. Тело запроса уже прочитано целиком,
+//ответ пишется в сокет из потока обработчика через буфер из пула.
+//Семантика sendResponseHeaders та же, что у HttpServer из JDK: длина > 0 - Content-Length,
+//0 - chunked (клиенту HTTP/1.0 - тело до закрытия соединения), -1 - без тела
+
+final class NioHttpExchange extends HttpExchange implements Runnable {
+    private static final Logger logger = Logger.getLogger(NioHttpExchange.class.getName());
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Заголовок Date обновляется не чаще раза в секунду
+    private static volatile long cachedDateSecond;
+    private static volatile String cachedDate;
+
+    private final NioConnection connection;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final NioHttpContext context;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private InputStream requestBody;
+    private OutputStream responseBody;
+
+    private boolean keepAlive;
+    private int responseCode = -1;
+    private boolean headersSent;
+    private boolean completed;
+
+    NioHttpExchange(NioConnection connection, String method, URI uri, String protocol, Headers requestHeaders,
+                    byte[] body, boolean keepAlive, NioHttpContext context) {
+        this.connection = connection;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = new ByteArrayInputStream(body);
+        this.keepAlive = keepAlive;
+        this.context = context;
+    }
+
+    //Выполняет обработчик контекста. Если обработчик не закрыл обмен - закрывает сам
+
+    @Override
+    public void run() {
+        try {
+            if (context == null) {
+                sendResponseHeaders(404, -1);
+            } else {
+                context.getHandler().handle(this);
+            }
+        } catch (Throwable e) {
+            logger.warning(() -> String.format("Ошибка обработки %s %s: %s", method, uri, e));
+            if (!headersSent) {
+                try {
+                    keepAlive = false;
+                    sendResponseHeaders(500, -1);
+                } catch (IOException ignored) {
+                    // Соединение все равно будет закрыто
+                }
+            } else {
+                // Ответ оборван на середине - соединение дальше использовать нельзя. Тело не
+                // завершается: последний chunk выдал бы обрезанный ответ клиенту за целый
+                keepAlive = false;
+                if (responseBody instanceof ResponseStream) {
+                    ((ResponseStream) responseBody).abort();
+                }
+            }
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        if (completed) {
+            return;
+        }
+        try {
+            if (!headersSent) {
+                // Обработчик ничего не ответил - как и HttpServer, просто закрываем соединение
+                keepAlive = false;
+            } else {
+                getResponseBody().close();
+            }
+        } catch (IOException e) {
+            keepAlive = false;
+        }
+        completed = true;
+        connection.requestCompleted(keepAlive);
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        if (responseBody == null) {
+            responseBody = new ResponseStream(-1, false);
+        }
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (headersSent) {
+            throw new IOException("Заголовки ответа уже отправлены");
+        }
+        headersSent = true;
+        responseCode = rCode;
+
+        // HEAD, 204 и 304 тела не имеют независимо от переданной длины
+        boolean noBody = responseLength < 0 || rCode == 204 || rCode == 304 || "HEAD".equals(method);
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(rCode).append(' ').append(reasonPhrase(rCode)).append("\r\n");
+        head.append("Date: ").append(currentDate()).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        long length;
+        boolean chunked = false;
+        if (noBody) {
+            if (rCode != 204 && rCode != 304) {
+                head.append("Content-Length: 0\r\n");
+            }
+            length = 0;
+        } else if (responseLength == 0 && protocol.equals("HTTP/1.1")) {
+            head.append("Transfer-Encoding: chunked\r\n");
+            chunked = true;
+            length = -1;
+        } else if (responseLength == 0) {
+            // HTTP/1.0 не знает chunked: конец тела обозначает закрытие соединения
+            keepAlive = false;
+            length = -1;
+        } else {
+            head.append("Content-Length: ").append(responseLength).append("\r\n");
+            length = responseLength;
+        }
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if (!protocol.equals("HTTP/1.1")) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("\r\n");
+
+        ResponseStream stream = new ResponseStream(length, chunked);
+        responseBody = stream;
+        stream.writeHead(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (noBody) {
+            stream.close();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    private static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        String date = cachedDate;
+        if (date == null || second != cachedDateSecond) {
+            date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+            cachedDate = date;
+            cachedDateSecond = second;
+        }
+        return date;
+    }
+
+    private static String reasonPhrase(int code) {
+        switch (code) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 204: return "No Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 415: return "Unsupported Media Type";
+            case 422: return "Unprocessable Entity";
+            case 500: return "Internal Server Error";
+            default: return "Status";
+        }
+    }
+
+    //Тело ответа: копит байты в буфере из пула и пишет в сокет при заполнении.
+    //В начале буфера могут лежать заголовки ответа - они уходят вместе с первой порцией тела
+
+    private final class ResponseStream extends OutputStream {
+        // Ожидаемая длина тела, -1 - неизвестна (chunked или до закрытия соединения)
+        private final long length;
+        private final boolean chunked;
+        private ByteBuffer buffer;
+        private int headBytes;
+        private long written;
+        private boolean closed;
+
+        ResponseStream(long length, boolean chunked) {
+            this.length = length;
+            this.chunked = chunked;
+        }
+
+        void writeHead(byte[] head) throws IOException {
+            if (head.length > NioServerEngine.RESPONSE_BUFFER_SIZE) {
+                connection.writeFully(ByteBuffer.wrap(head));
+                return;
+            }
+            buffer().put(head);
+            headBytes = head.length;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) throws IOException {
+            if (closed) {
+                throw new IOException("Тело ответа уже закрыто");
+            }
+            if (!headersSent) {
+                throw new IOException("Сначала нужно вызвать sendResponseHeaders");
+            }
+            if (length >= 0 && written + count > length) {
+                throw new IOException("Тело ответа длиннее объявленного Content-Length");
+            }
+            written += count;
+            while (count > 0) {
+                ByteBuffer target = buffer();
+                int chunk = Math.min(count, target.remaining());
+                target.put(bytes, offset, chunk);
+                offset += chunk;
+                count -= chunk;
+                if (!target.hasRemaining()) {
+                    flushBuffer();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer != null && buffer.position() > 0) {
+                flushBuffer();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                flush();
+                if (chunked) {
+                    connection.writeFully(ByteBuffer.wrap(LAST_CHUNK));
+                } else if (length >= 0 && written != length) {
+                    // Обработчик записал меньше объявленного - клиент не поймет, где конец ответа
+                    keepAlive = false;
+                }
+            } finally {
+                if (buffer != null) {
+                    connection.bufferPool().release(buffer);
+                    buffer = null;
+                }
+            }
+        }
+
+        //Бросает недописанное тело: буфер возвращается в пул, в сокет больше ничего не пишется
+
+        void abort() {
+            closed = true;
+            if (buffer != null) {
+                connection.bufferPool().release(buffer);
+                buffer = null;
+            }
+        }
+
+        private ByteBuffer buffer() {
+            if (buffer == null) {
+                buffer = connection.bufferPool().acquire();
+            }
+            return buffer;
+        }
+
+        //Отправляет содержимое буфера: заголовки как есть, тело - как есть или отдельным chunk
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            int bodyBytes = buffer.remaining() - headBytes;
+            if (chunked && bodyBytes > 0) {
+                ByteBuffer head = buffer.duplicate();
+                head.limit(headBytes);
+                ByteBuffer body = buffer.duplicate();
+                body.position(headBytes);
+                byte[] size = (Integer.toHexString(bodyBytes) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+                connection.writeFully(head, ByteBuffer.wrap(size), body, ByteBuffer.wrap(CRLF));
+            } else {
+                connection.writeFully(buffer);
+            }
+            buffer.clear();
+            headBytes = 0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+package ru.practicum.moviehub.http.nio;
+
+import com.sun.net.httpserver.HttpHandler;
+import ru.practicum.moviehub.http.ServerEngine;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+
+//Неблокирующий HTTP/1.1 движок на java.nio. По циклу событий (Selector) на ядро:
+//первый цикл принимает соединения и раздает их циклам по кругу, каждый цикл читает
+//и разбирает запросы своих соединений. Обработчик получает обычный HttpExchange и
+//выполняется в заданном executor (или прямо в цикле событий, если executor - null).
+//Ответ пишет поток обработчика через буферы из общего пула прямых буферов.
+//Соединения keep-alive, запросы, пришедшие одной пачкой (pipelining), обрабатываются
+//по очереди - ответы уходят в порядке запросов
+
+public class NioServerEngine implements ServerEngine {
+    private static final Logger logger = Logger.getLogger(NioServerEngine.class.getName());
+
+    // Буферы ответа: размер одного и сколько держать в пуле
+    static final int RESPONSE_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+
+    private final InetSocketAddress address;
+    private final int backlog;
+    private final int loopCount;
+    private final boolean reusePort;
+    private final Map<String, NioHttpContext> contexts = new ConcurrentHashMap<>();
+    private final BufferPool bufferPool = new BufferPool(RESPONSE_BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private volatile Executor executor;
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] loops;
+
+    public NioServerEngine(InetSocketAddress address, int backlog) {
+        this(address, backlog, Runtime.getRuntime().availableProcessors());
+    }
+
+    public NioServerEngine(InetSocketAddress address, int backlog, int loopCount) {
+        this(address, backlog, loopCount, false);
+    }
+
+    //reusePort - открыть порт с SO_REUSEPORT, чтобы несколько движков слушали один порт,
+    //а ядро распределяло между ними новые соединения
+
+    public NioServerEngine(InetSocketAddress address, int backlog, int loopCount, boolean reusePort) {
+        this.address = address;
+        this.backlog = backlog;
+        this.loopCount = Math.max(1, loopCount);
+        this.reusePort = reusePort;
+    }
+
+    //Поддерживает ли платформа SO_REUSEPORT для серверных сокетов
+
+    public static boolean isReusePortSupported() {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            return channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler) {
+        contexts.put(path, new NioHttpContext(path, handler));
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void start() {
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            if (reusePort) {
+                serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            serverChannel.bind(address, backlog);
+            serverChannel.configureBlocking(false);
+
+            loops = new EventLoop[loopCount];
+            for (int i = 0; i < loopCount; i++) {
+                loops[i] = new EventLoop(this, "nio-loop-" + i);
+            }
+            loops[0].acceptFrom(serverChannel, loops);
+            for (EventLoop loop : loops) {
+                loop.start();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось запустить NIO движок на " + address, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                loop.shutdown();
+            }
+        }
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warning(() -> "Ошибка при закрытии серверного сокета: " + e.getMessage());
+        }
+    }
+
+    BufferPool bufferPool() {
+        return bufferPool;
+    }
+
+    //Выбирает контекст с самым длинным префиксом пути, как HttpServer из JDK
+
+    NioHttpContext findContext(String path) {
+        NioHttpContext best = null;
+        for (NioHttpContext context : contexts.values()) {
+            if (path.startsWith(context.getPath())
+                    && (best == null || context.getPath().length() > best.getPath().length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    //Запускает в потоке обработчиков разобранный запрос или дописывание служебного ответа
+
+    void dispatch(Runnable task) {
+        Executor current = executor;
+        if (current == null) {
+            task.run();
+            return;
+        }
+        try {
+            current.execute(task);
+        } catch (RejectedExecutionException e) {
+            // executor остановлен - обрабатываем здесь, чтобы соединение не зависло
+            task.run();
+        }
+    }
+}
\ No newline at end of file
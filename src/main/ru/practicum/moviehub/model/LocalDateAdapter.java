@@ -1,34 +1,101 @@
 package ru.practicum.moviehub.model;
 
-import com.google.gson.*;
-import java.lang.reflect.Type;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
-//Адаптер для сериализации/десериализации LocalDate в JSON
+//Адаптер для сериализации/десериализации LocalDate в JSON (формат YYYY-MM-DD).
+//Пишет и читает строку напрямую из потока Gson, без промежуточных JsonElement.
+//Обычные даты (год из четырех цифр) разбираются и форматируются вручную, без
+//DateTimeFormatter и его промежуточных объектов; остальные - через LocalDate.parse/toString
 
-public class LocalDateAdapter implements JsonSerializer<LocalDate>, JsonDeserializer<LocalDate> {
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+public class LocalDateAdapter extends TypeAdapter<LocalDate> {
 
     @Override
-    public JsonElement serialize(LocalDate date, Type typeOfSrc, JsonSerializationContext context) {
+    public void write(JsonWriter out, LocalDate date) throws IOException {
         if (date == null) {
-            return JsonNull.INSTANCE;
+            out.nullValue();
+            return;
         }
-        return new JsonPrimitive(date.format(FORMATTER));
+        out.value(format(date));
     }
 
     @Override
-    public LocalDate deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
-            throws JsonParseException {
-        if (json == null || json.isJsonNull()) {
+    public LocalDate read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
             return null;
         }
         try {
-            return LocalDate.parse(json.getAsString(), FORMATTER);
+            return parse(in.nextString());
         } catch (DateTimeParseException e) {
             throw new JsonParseException("Неверный формат даты. Ожидается YYYY-MM-DD", e);
         }
     }
+
+    //Дата в формате YYYY-MM-DD, как LocalDate.toString()
+
+    public static String format(LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return date.toString();
+        }
+        int month = date.getMonthValue();
+        int day = date.getDayOfMonth();
+        byte[] text = new byte[10];
+        text[0] = (byte) ('0' + year / 1000);
+        text[1] = (byte) ('0' + year / 100 % 10);
+        text[2] = (byte) ('0' + year / 10 % 10);
+        text[3] = (byte) ('0' + year % 10);
+        text[4] = '-';
+        text[5] = (byte) ('0' + month / 10);
+        text[6] = (byte) ('0' + month % 10);
+        text[7] = '-';
+        text[8] = (byte) ('0' + day / 10);
+        text[9] = (byte) ('0' + day % 10);
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+
+    //Разбирает дату YYYY-MM-DD так же строго, как LocalDate.parse (30 февраля - ошибка)
+    //и с тем же исключением DateTimeParseException
+
+    public static LocalDate parse(String text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return LocalDate.parse(text);
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return LocalDate.parse(text);
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            throw new DateTimeParseException("Text '" + text + "' could not be parsed: " + e.getMessage(),
+                    text, 0, e);
+        }
+    }
+
+    //Число из count цифр начиная с from или -1, если встретилась не цифра
+
+    private static int digits(String text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package ru.practicum.moviehub.model;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+//Потоковый JSON адаптер запроса на создание фильма без рефлексии.
+//ID клиента читается из поля "id", как задано @SerializedName
+
+public class MovieCreateRequestTypeAdapter extends TypeAdapter<MovieCreateRequest> {
+
+    @Override
+    public void write(JsonWriter out, MovieCreateRequest request) throws IOException {
+        if (request == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (request.getName() != null) {
+            out.name("name").value(request.getName());
+        }
+        if (request.getDescription() != null) {
+            out.name("description").value(request.getDescription());
+        }
+        if (request.getReleaseDate() != null) {
+            out.name("releaseDate").value(request.getReleaseDate());
+        }
+        out.name("duration").value(request.getDuration());
+        if (request.getClientId() != null) {
+            out.name("id").value(request.getClientId());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public MovieCreateRequest read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        MovieCreateRequest request = new MovieCreateRequest();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    request.setName(MovieTypeAdapter.readString(in));
+                    break;
+                case "description":
+                    request.setDescription(MovieTypeAdapter.readString(in));
+                    break;
+                case "releaseDate":
+                    request.setReleaseDate(MovieTypeAdapter.readString(in));
+                    break;
+                case "duration":
+                    request.setDuration(MovieTypeAdapter.readInt(in, request.getDuration()));
+                    break;
+                case "id":
+                    request.setClientId(readInteger(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return request;
+    }
+
+    private static Integer readInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+}
\ No newline at end of file
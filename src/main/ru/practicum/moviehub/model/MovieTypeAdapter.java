@@ -0,0 +1,105 @@
+package ru.practicum.moviehub.model;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+//Потоковый JSON адаптер фильма без рефлексии. Формат совпадает с тем, что строит Gson
+//по полям класса: тот же порядок полей, null поля пропускаются, неизвестные игнорируются
+
+public class MovieTypeAdapter extends TypeAdapter<Movie> {
+    private final LocalDateAdapter dateAdapter = new LocalDateAdapter();
+
+    @Override
+    public void write(JsonWriter out, Movie movie) throws IOException {
+        if (movie == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(movie.getId());
+        if (movie.getName() != null) {
+            out.name("name").value(movie.getName());
+        }
+        if (movie.getDescription() != null) {
+            out.name("description").value(movie.getDescription());
+        }
+        if (movie.getReleaseDate() != null) {
+            out.name("releaseDate").value(LocalDateAdapter.format(movie.getReleaseDate()));
+        }
+        out.name("duration").value(movie.getDuration());
+        out.endObject();
+    }
+
+    @Override
+    public Movie read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int id = 0;
+        String name = null;
+        String description = null;
+        LocalDate releaseDate = null;
+        int duration = 0;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    id = readInt(in, id);
+                    break;
+                case "name":
+                    name = readString(in);
+                    break;
+                case "description":
+                    description = readString(in);
+                    break;
+                case "releaseDate":
+                    releaseDate = dateAdapter.read(in);
+                    break;
+                case "duration":
+                    duration = readInt(in, duration);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new Movie(id, name, description, releaseDate, duration);
+    }
+
+    //Строка как у Gson: null, а числа и логические значения - их текстом
+
+    static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    //Целое как у Gson для поля int: null оставляет прежнее значение, не число - ошибка синтаксиса
+
+    static int readInt(JsonReader in, int current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package ru.practicum.moviehub.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+//Проверка данных для создания фильма. Общая для POST /movies, пакетной загрузки и импорта
+
+public class MovieValidator {
+    // Константы для валидации
+    private static final int MIN_YEAR = 1888;
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_DESCRIPTION_LENGTH = 2000;
+    private static final int MAX_DURATION_HOURS = 24;
+    private static final int MIN_DURATION = 1;
+
+    //Валидирует данные для создания фильма. Пустой список - данные корректны
+
+    public List<String> validate(MovieCreateRequest request) {
+        List<String> errors = new ArrayList<>();
+
+        // Проверка: клиент не должен указывать ID
+        if (request.getClientId() != null) {
+            errors.add("ID фильма не должен быть указан при создании. ID генерируется автоматически сервером.");
+        }
+
+        // Валидация названия
+        if (request.getName() == null || request.getName().trim().isEmpty()) {
+            errors.add("Название обязательно");
+        } else {
+            String trimmedName = request.getName().trim();
+            if (trimmedName.length() > MAX_NAME_LENGTH) {
+                errors.add(String.format("Название должно быть не более %d символов", MAX_NAME_LENGTH));
+            }
+            // Проверка на недопустимые символы
+            if (trimmedName.contains("\0") || trimmedName.contains("\r") || trimmedName.contains("\n")) {
+                errors.add("Название содержит недопустимые символы");
+            }
+        }
+
+        // Валидация описания
+        if (request.getDescription() != null) {
+            String description = request.getDescription().trim();
+            if (description.length() > MAX_DESCRIPTION_LENGTH) {
+                errors.add(String.format("Описание должно быть не более %d символов", MAX_DESCRIPTION_LENGTH));
+            }
+        }
+
+        // Валидация даты
+        if (request.getReleaseDate() == null || request.getReleaseDate().trim().isEmpty()) {
+            errors.add("Дата выпуска обязательна");
+        } else {
+            try {
+                LocalDate releaseDate = LocalDateAdapter.parse(request.getReleaseDate().trim());
+                LocalDate now = LocalDate.now();
+
+                if (releaseDate.getYear() < MIN_YEAR) {
+                    errors.add(String.format("Год выпуска должен быть не раньше %d", MIN_YEAR));
+                }
+                if (releaseDate.getYear() > now.getYear() + 1) {
+                    errors.add("Год выпуска не может быть в далеком будущем");
+                }
+                if (releaseDate.isAfter(now.plusYears(1))) {
+                    errors.add("Дата выпуска не может быть больше чем на 1 год в будущем");
+                }
+            } catch (DateTimeParseException e) {
+                errors.add("Неверный формат даты. Используйте YYYY-MM-DD");
+            }
+        }
+
+        // Валидация продолжительности
+        if (request.getDuration() < MIN_DURATION) {
+            errors.add(String.format("Продолжительность должна быть не менее %d минуты", MIN_DURATION));
+        } else if (request.getDuration() > MAX_DURATION_HOURS * 60) {
+            errors.add(String.format("Продолжительность не может превышать %d часов", MAX_DURATION_HOURS));
+        }
+
+        return errors;
+    }
+
+    //Создает фильм из проверенного запроса. ID=0 - его назначит хранилище
+
+    public Movie toMovie(MovieCreateRequest request) {
+        return new Movie(0,
+                request.getName().trim(),
+                request.getDescription() != null ? request.getDescription().trim() : "",
+                LocalDateAdapter.parse(request.getReleaseDate().trim()),
+                request.getDuration());
+    }
+}
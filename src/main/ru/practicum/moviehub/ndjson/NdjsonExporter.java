@@ -0,0 +1,93 @@
+package ru.practicum.moviehub.ndjson;
+
+import com.google.gson.Gson;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.CatalogView;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+//Выгрузка каталога в NDJSON (по JSON-объекту фильма на строку) в порядке ID.
+//Диапазон ID взгляда делится на участки, участки сериализуются параллельно в пуле
+//fork-join, а готовые байты пишутся строго по порядку. Одновременно в работе не больше
+//окна участков, поэтому память не зависит от размера каталога, а медленный клиент
+//просто тормозит сериализацию через блокирующую запись
+
+public class NdjsonExporter {
+    private static final int CHUNK_IDS = 4096;
+
+    private final Gson gson;
+    private final ForkJoinPool pool;
+
+    public NdjsonExporter(Gson gson) {
+        this(gson, ForkJoinPool.commonPool());
+    }
+
+    public NdjsonExporter(Gson gson, ForkJoinPool pool) {
+        this.gson = gson;
+        this.pool = pool;
+    }
+
+    //Пишет все фильмы взгляда в поток. Возвращает число выгруженных фильмов
+
+    public long export(CatalogView view, OutputStream out) throws IOException {
+        int maxId = view.getMaxId();
+        int window = pool.getParallelism() * 2 + 1;
+        Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>(window);
+        long exported = 0;
+        int nextFrom = 1;
+        try {
+            while (nextFrom <= maxId || !inFlight.isEmpty()) {
+                while (nextFrom <= maxId && inFlight.size() < window) {
+                    int from = nextFrom;
+                    int to = (int) Math.min((long) from + CHUNK_IDS - 1, maxId);
+                    inFlight.addLast(pool.submit(() -> serialize(view, from, to)));
+                    nextFrom = to + 1;
+                }
+                Chunk chunk = inFlight.removeFirst().join();
+                out.write(chunk.bytes);
+                exported += chunk.count;
+            }
+        } finally {
+            // Клиент отвалился - оставшиеся участки уже не нужны
+            for (ForkJoinTask<Chunk> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+        out.flush();
+        return exported;
+    }
+
+    //Сериализует фильмы с ID из [from, to] в строки NDJSON
+
+    private Chunk serialize(CatalogView view, int from, int to) {
+        StringBuilder sb = new StringBuilder((to - from + 1) * 128);
+        int count = 0;
+        for (int id = from; id <= to; id++) {
+            Movie movie = view.get(id);
+            if (movie != null) {
+                gson.toJson(movie, Movie.class, sb);
+                sb.append('\n');
+                count++;
+            }
+        }
+        return new Chunk(sb.toString().getBytes(StandardCharsets.UTF_8), count);
+    }
+
+    //Готовый участок выгрузки
+
+    private static final class Chunk {
+        final byte[] bytes;
+        final int count;
+
+        Chunk(byte[] bytes, int count) {
+            this.bytes = bytes;
+            this.count = count;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,246 @@
+package ru.practicum.moviehub.ndjson;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import ru.practicum.moviehub.api.MovieHubGson;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieCreateRequest;
+import ru.practicum.moviehub.model.MovieValidator;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+//Потоковый импорт фильмов из NDJSON (по JSON-объекту на строку, можно сжатый gzip).
+//Файл читается одним потоком порциями строк, порции через ограниченную очередь уходят
+//рабочим потокам, которые разбирают и валидируют строки и добавляют фильмы пакетами.
+//В памяти одновременно не больше (QUEUE_CAPACITY + число потоков) порций
+
+public class NdjsonImporter {
+    private static final Logger logger = Logger.getLogger(NdjsonImporter.class.getName());
+
+    private static final int BATCH_LINES = 1000;
+    private static final int MAX_LOGGED_ERRORS = 20;
+
+    // Пустая порция - сигнал рабочему потоку завершиться
+    private static final Batch END = new Batch(0, List.of());
+
+    private final MoviesStore moviesStore;
+    private final Gson gson = MovieHubGson.create();
+    private final MovieValidator validator = new MovieValidator();
+    private final int threads;
+
+    public NdjsonImporter(MoviesStore moviesStore) {
+        this(moviesStore, Runtime.getRuntime().availableProcessors());
+    }
+
+    public NdjsonImporter(MoviesStore moviesStore, int threads) {
+        this.moviesStore = moviesStore;
+        this.threads = Math.max(1, threads);
+    }
+
+    //Импортирует файл. Сжатие gzip определяется по сигнатуре, а не по расширению
+
+    public ImportResult importFile(Path path) throws IOException, InterruptedException {
+        try (InputStream in = openMaybeGzip(path)) {
+            return importStream(in);
+        }
+    }
+
+    public ImportResult importStream(InputStream in) throws IOException, InterruptedException {
+        long startedAt = System.nanoTime();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(threads * 2);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "ndjson-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(workers.submit(() -> {
+                while (true) {
+                    Batch batch = queue.take();
+                    if (batch == END) {
+                        return null;
+                    }
+                    processBatch(batch, imported, rejected);
+                }
+            }));
+        }
+
+        long lines = 0;
+        boolean completed = false;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            List<String> current = new ArrayList<>(BATCH_LINES);
+            long firstLine = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                current.add(line);
+                if (current.size() == BATCH_LINES) {
+                    // Ждет, если рабочие не успевают: чтение файла ждет разбора
+                    enqueue(queue, new Batch(firstLine, current), futures);
+                    current = new ArrayList<>(BATCH_LINES);
+                    firstLine = lines + 1;
+                }
+            }
+            if (!current.isEmpty()) {
+                enqueue(queue, new Batch(firstLine, current), futures);
+            }
+            for (int i = 0; i < threads; i++) {
+                enqueue(queue, END, futures);
+            }
+            completed = true;
+        } finally {
+            if (completed) {
+                workers.shutdown();
+            } else {
+                // Рабочие, ждущие порций, которых уже не будет, прерываются
+                workers.shutdownNow();
+            }
+        }
+
+        for (Future<?> future : futures) {
+            awaitWorker(future);
+        }
+
+        return new ImportResult(lines, imported.get(), rejected.get(), System.nanoTime() - startedAt);
+    }
+
+    //Кладет порцию в очередь. Пока очередь полна, проверяет рабочих: упавший рабочий больше
+    //не разбирает порции, и без проверки чтение ждало бы места в очереди вечно
+
+    private static void enqueue(BlockingQueue<Batch> queue, Batch batch, List<Future<?>> futures)
+            throws IOException, InterruptedException {
+        do {
+            // До получения END рабочий завершается только с ошибкой
+            for (Future<?> future : futures) {
+                if (future.isDone()) {
+                    awaitWorker(future);
+                }
+            }
+        } while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS));
+    }
+
+    private static void awaitWorker(Future<?> future) throws IOException, InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка импорта: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    //Разбирает и валидирует порцию строк по тем же правилам, что и POST /movies,
+    //и добавляет корректные фильмы одним пакетом
+
+    private void processBatch(Batch batch, AtomicLong imported, AtomicLong rejected) {
+        List<Movie> valid = new ArrayList<>(batch.lines.size());
+        for (int i = 0; i < batch.lines.size(); i++) {
+            String line = batch.lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            long lineNumber = batch.firstLine + i;
+            List<String> errors;
+            try {
+                MovieCreateRequest request = gson.fromJson(line, MovieCreateRequest.class);
+                errors = request != null ? validator.validate(request) : List.of("Пустая строка");
+                if (errors.isEmpty()) {
+                    valid.add(validator.toMovie(request));
+                    continue;
+                }
+            } catch (JsonParseException e) {
+                errors = List.of("Неверный формат JSON");
+            }
+            if (rejected.incrementAndGet() <= MAX_LOGGED_ERRORS) {
+                List<String> details = errors;
+                logger.warning(() -> String.format("Импорт: строка %d отклонена: %s", lineNumber, details));
+            }
+        }
+        moviesStore.addMovies(valid);
+        imported.addAndGet(valid.size());
+    }
+
+    private static InputStream openMaybeGzip(Path path) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new GZIPInputStream(in, 1 << 16);
+        }
+        return in;
+    }
+
+    //Порция строк файла (firstLine - номер первой строки с единицы, для сообщений об ошибках)
+
+    private static final class Batch {
+        final long firstLine;
+        final List<String> lines;
+
+        Batch(long firstLine, List<String> lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    //Итог импорта
+
+    public static class ImportResult {
+        private final long lines;
+        private final long imported;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        public ImportResult(long lines, long imported, long rejected, long elapsedNanos) {
+            this.lines = lines;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        //Скорость импорта в строках в секунду
+
+        public double getLinesPerSecond() {
+            return elapsedNanos > 0 ? lines * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+    }
+}
\ No newline at end of file
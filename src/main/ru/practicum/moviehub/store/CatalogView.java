@@ -0,0 +1,73 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Согласованный на один момент времени взгляд на каталог (например, для выгрузки).
+//Данные не копируются: фильмы читаются из основного хранилища, а хранилище перед
+//удалением фильма с ID из диапазона взгляда сохраняет его копию сюда. После очистки
+//хранилища взгляд "отсоединяется" и отдает только сохраненные фильмы.
+//Писателей взгляд не блокирует. Обязательно закрывать после использования
+
+public class CatalogView implements AutoCloseable {
+    private final MoviesStore owner;
+    private final MovieStorage movies;
+    private final int maxId;
+
+    // Фильмы из взгляда, удаленные из хранилища после его открытия
+    private final Map<Integer, Movie> preserved = new ConcurrentHashMap<>();
+
+    // Хранилище очищено: его содержимое больше не относится к взгляду
+    private volatile boolean detached;
+
+    CatalogView(MoviesStore owner, MovieStorage movies, int maxId) {
+        this.owner = owner;
+        this.movies = movies;
+        this.maxId = maxId;
+    }
+
+    //Наибольший ID, который мог существовать на момент открытия взгляда
+
+    public int getMaxId() {
+        return maxId;
+    }
+
+    //Возвращает фильм, каким он был на момент открытия взгляда, или null
+
+    public Movie get(int id) {
+        if (id < 1 || id > maxId) {
+            return null;
+        }
+        // Сначала хранилище, потом флаг: если очистка еще не началась к моменту проверки
+        // флага, прочитанный фильм был в хранилище до нее
+        Movie movie = movies.get(id);
+        if (movie != null && !detached) {
+            return movie;
+        }
+        return preserved.get(id);
+    }
+
+    //Сохраняет фильм перед удалением из хранилища
+
+    void preserve(Movie movie) {
+        if (movie.getId() <= maxId) {
+            preserved.putIfAbsent(movie.getId(), movie);
+        }
+    }
+
+    //Сохраняет все фильмы взгляда перед очисткой хранилища и перестает читать хранилище
+
+    void detach() {
+        if (!detached) {
+            movies.forEach(this::preserve);
+            detached = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        owner.closeView(this);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,233 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.StampedLock;
+
+//Поколоночное хранение фильмов для очень больших каталогов.
+//ID фильма - это номер строки: строки разбиты на страницы по PAGE_SIZE, в каждой странице
+//примитивные колонки (день выпуска, продолжительность, смещения строк), а сами строки
+//лежат в UTF-8 вне кучи (Utf8Arena). На фильм в куче приходится ~24 байта без заголовков
+//и ссылок, объект Movie создается только при чтении.
+//Запись идет под общей блокировкой, чтение - оптимистично без блокировки
+
+class ColumnarMovieStorage implements MovieStorage {
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // Пустая строка таблицы (дата с таким днем не поддерживается)
+    private static final int EMPTY_DAY = Integer.MIN_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Page[] pages = new Page[0];
+    private volatile Utf8Arena arena = new Utf8Arena();
+    private volatile int size;
+
+    @Override
+    public Movie get(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Row row = readRow(id);
+            if (lock.validate(stamp)) {
+                return materialize(id, row);
+            }
+        }
+        // Во время чтения шла запись - перечитываем под блокировкой
+        stamp = lock.readLock();
+        try {
+            return materialize(id, readRow(id));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void put(Movie movie) {
+        int id = movie.getId();
+        if (id <= 0) {
+            throw new IllegalArgumentException("ID фильма должен быть положительным");
+        }
+        long day = movie.getReleaseDate().toEpochDay();
+        if (day <= EMPTY_DAY || day > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Дата выпуска вне поддерживаемого диапазона");
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            Page page = pageForWrite(id >>> PAGE_BITS);
+            int slot = id & PAGE_MASK;
+            // Строки старой версии остаются в арене мусором до clear()
+            if (page.epochDays[slot] == EMPTY_DAY) {
+                size = size + 1;
+            }
+            Utf8Arena a = arena;
+            page.nameRefs[slot] = a.append(movie.getName());
+            page.descriptionRefs[slot] = a.append(movie.getDescription());
+            page.durations[slot] = movie.getDuration();
+            page.epochDays[slot] = (int) day;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Movie remove(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        long stamp = lock.writeLock();
+        try {
+            Movie removed = materialize(id, readRow(id));
+            if (removed != null) {
+                pages[id >>> PAGE_BITS].epochDays[id & PAGE_MASK] = EMPTY_DAY;
+                size = size - 1;
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //Сбрасывает все колонки. Память старой арены освобождается сборщиком мусора
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            pages = new Page[0];
+            arena = new Utf8Arena();
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    //Копия всех фильмов. Каждая страница читается атомарно, между страницами запись не блокируется
+
+    @Override
+    public List<Movie> values() {
+        List<Movie> result = new ArrayList<>(size);
+        forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public void forEach(Consumer<Movie> action) {
+        List<Movie> batch = new ArrayList<>();
+        int pageCount = pages.length;
+        for (int p = 0; p < pageCount; p++) {
+            batch.clear();
+            long stamp = lock.readLock();
+            try {
+                Page[] dir = pages;
+                if (p >= dir.length) {
+                    break;
+                }
+                if (dir[p] == null) {
+                    continue;
+                }
+                int base = p << PAGE_BITS;
+                for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                    Movie movie = materialize(base | slot, readRow(base | slot));
+                    if (movie != null) {
+                        batch.add(movie);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            batch.forEach(action);
+        }
+    }
+
+    //Объем строк вне кучи в байтах
+
+    long offHeapBytes() {
+        return arena.allocatedBytes();
+    }
+
+    //Читает примитивные поля строки таблицы (без декодирования строк) или null, если строки нет
+
+    private Row readRow(int id) {
+        Page[] dir = pages;
+        int p = id >>> PAGE_BITS;
+        if (p >= dir.length || dir[p] == null) {
+            return null;
+        }
+        Page page = dir[p];
+        int slot = id & PAGE_MASK;
+        int day = page.epochDays[slot];
+        if (day == EMPTY_DAY) {
+            return null;
+        }
+        return new Row(arena, day, page.durations[slot], page.nameRefs[slot], page.descriptionRefs[slot]);
+    }
+
+    private static Movie materialize(int id, Row row) {
+        if (row == null) {
+            return null;
+        }
+        return new Movie(id,
+                row.arena.read(row.nameRef),
+                row.arena.read(row.descriptionRef),
+                LocalDate.ofEpochDay(row.epochDay),
+                row.duration);
+    }
+
+    private Page pageForWrite(int p) {
+        Page[] dir = pages;
+        if (p >= dir.length) {
+            dir = Arrays.copyOf(dir, Math.max(p + 1, dir.length * 2));
+        }
+        if (dir[p] == null) {
+            dir[p] = new Page();
+        }
+        pages = dir;
+        return dir[p];
+    }
+
+    //Страница колонок на PAGE_SIZE подряд идущих ID
+
+    private static final class Page {
+        final int[] epochDays = new int[PAGE_SIZE];
+        final int[] durations = new int[PAGE_SIZE];
+        final long[] nameRefs = new long[PAGE_SIZE];
+        final long[] descriptionRefs = new long[PAGE_SIZE];
+
+        Page() {
+            Arrays.fill(epochDays, EMPTY_DAY);
+        }
+    }
+
+    //Прочитанная строка таблицы до декодирования строк
+
+    private static final class Row {
+        final Utf8Arena arena;
+        final int epochDay;
+        final int duration;
+        final long nameRef;
+        final long descriptionRef;
+
+        Row(Utf8Arena arena, int epochDay, int duration, long nameRef, long descriptionRef) {
+            this.arena = arena;
+            this.epochDay = epochDay;
+            this.duration = duration;
+            this.nameRef = nameRef;
+            this.descriptionRef = descriptionRef;
+        }
+    }
+}
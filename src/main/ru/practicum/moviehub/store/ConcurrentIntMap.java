@@ -0,0 +1,285 @@
+package ru.practicum.moviehub.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.StampedLock;
+
+//Потокобезопасная хеш-мапа с ключами int без упаковки в Integer.
+//Ключи разбиты на сегменты, каждый сегмент - открытая адресация с линейным пробированием
+//в двух параллельных массивах (int[] ключей и Object[] значений) под своим StampedLock.
+//Чтение идет без блокировки (оптимистичный stamp), запись и расширение блокируют только сегмент.
+//Ключ 0 зарезервирован под пустую ячейку, поэтому допустимы только ненулевые ключи
+
+class ConcurrentIntMap<V> {
+    private static final int SEGMENT_COUNT = 64;          // Степень двойки
+    private static final int SEGMENT_SHIFT = 32 - Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+    private static final int INITIAL_SEGMENT_CAPACITY = 16; // Степень двойки
+    private static final int EMPTY = 0;
+
+    private final Segment<V>[] segments;
+
+    ConcurrentIntMap() {
+        @SuppressWarnings("unchecked")
+        Segment<V>[] created = (Segment<V>[]) new Segment<?>[SEGMENT_COUNT];
+        segments = created;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    //Значение по ключу или null. Ключа 0 в мапе не бывает: он совпал бы с пустой ячейкой
+
+    V get(int key) {
+        if (key == EMPTY) {
+            return null;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    //Кладет значение и возвращает предыдущее (или null)
+
+    V put(int key, V value) {
+        checkKey(key);
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    //Удаляет ключ и возвращает удаленное значение (или null). Ключ 0 не ищется: иначе
+    //он совпал бы с пустой ячейкой, и удаление сдвинуло бы цепочку и уменьшило размер
+
+    V remove(int key) {
+        if (key == EMPTY) {
+            return null;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    //Копия всех значений. Каждый сегмент копируется атомарно, но мапа целиком - нет
+    //(как у итераторов ConcurrentHashMap)
+
+    List<V> values() {
+        List<V> result = new ArrayList<>(size());
+        for (Segment<V> segment : segments) {
+            segment.copyValuesTo(result);
+        }
+        return result;
+    }
+
+    //Обходит значения по сегментам: сегмент копируется под блокировкой чтения,
+    //action вызывается уже без блокировки
+
+    void forEachValue(Consumer<? super V> action) {
+        List<V> batch = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            batch.clear();
+            segment.copyValuesTo(batch);
+            batch.forEach(action);
+        }
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        return segments[hash >>> SEGMENT_SHIFT];
+    }
+
+    private static void checkKey(int key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Ключ 0 зарезервирован");
+        }
+    }
+
+    //Перемешивание битов (финализатор MurmurHash3): последовательные ID
+    //равномерно расходятся и по сегментам (старшие биты), и по ячейкам (младшие)
+
+    private static int hash(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    //Таблица сегмента. Ключи и значения меняются вместе при расширении,
+    //поэтому читатель всегда видит согласованную пару массивов
+
+    private static final class Table {
+        final int[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        private volatile int size;
+
+        V get(int key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                V value = find(table, key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            // Во время чтения шла запись - перечитываем под блокировкой
+            stamp = lock.readLock();
+            try {
+                return find(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        V put(int key, int hash, V value) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int i = hash & t.mask;
+                for (int k; (k = t.keys[i]) != EMPTY; i = (i + 1) & t.mask) {
+                    if (k == key) {
+                        V previous = cast(t.values[i]);
+                        t.values[i] = value;
+                        return previous;
+                    }
+                }
+                t.values[i] = value;
+                t.keys[i] = key;
+                size = size + 1;
+                // Коэффициент заполнения 0.75
+                if (size > (t.keys.length >>> 2) * 3) {
+                    table = resize(t);
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V remove(int key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int i = hash & t.mask;
+                for (int k; (k = t.keys[i]) != key; i = (i + 1) & t.mask) {
+                    if (k == EMPTY) {
+                        return null;
+                    }
+                }
+                V removed = cast(t.values[i]);
+                shiftBack(t, i);
+                size = size - 1;
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                table = new Table(INITIAL_SEGMENT_CAPACITY);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void copyValuesTo(List<V> target) {
+            long stamp = lock.readLock();
+            try {
+                for (Object value : table.values) {
+                    if (value != null) {
+                        target.add(cast(value));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        //Поиск ключа. При оптимистичном чтении таблица может меняться параллельно,
+        //поэтому число шагов ограничено размером таблицы
+
+        private static <V> V find(Table t, int key, int hash) {
+            int i = hash & t.mask;
+            for (int step = 0; step <= t.mask; step++, i = (i + 1) & t.mask) {
+                int k = t.keys[i];
+                if (k == key) {
+                    return cast(t.values[i]);
+                }
+                if (k == EMPTY) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        //Удаление без "надгробий": сдвигаем назад следующие элементы цепочки,
+        //которые могут занять освободившуюся ячейку
+
+        private static void shiftBack(Table t, int hole) {
+            int i = hole;
+            int j = (i + 1) & t.mask;
+            for (int k; (k = t.keys[j]) != EMPTY; j = (j + 1) & t.mask) {
+                int ideal = hash(k) & t.mask;
+                // Элемент можно переносить, если его идеальная позиция не лежит в (i, j]
+                boolean between = i <= j ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+                if (!between) {
+                    t.keys[i] = k;
+                    t.values[i] = t.values[j];
+                    i = j;
+                }
+            }
+            t.keys[i] = EMPTY;
+            t.values[i] = null;
+        }
+
+        private static Table resize(Table old) {
+            Table t = new Table(old.keys.length << 1);
+            for (int j = 0; j < old.keys.length; j++) {
+                int k = old.keys[j];
+                if (k != EMPTY) {
+                    int i = hash(k) & t.mask;
+                    while (t.keys[i] != EMPTY) {
+                        i = (i + 1) & t.mask;
+                    }
+                    t.keys[i] = k;
+                    t.values[i] = old.values[j];
+                }
+            }
+            return t;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V cast(Object value) {
+            return (V) value;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+//Хранение фильмов объектами в куче в мапе с примитивными ключами
+
+class HeapMovieStorage implements MovieStorage {
+    private final ConcurrentIntMap<Movie> movies = new ConcurrentIntMap<>();
+
+    @Override
+    public Movie get(int id) {
+        return movies.get(id);
+    }
+
+    @Override
+    public void put(Movie movie) {
+        movies.put(movie.getId(), movie);
+    }
+
+    @Override
+    public Movie remove(int id) {
+        return movies.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return movies.size();
+    }
+
+    @Override
+    public void clear() {
+        movies.clear();
+    }
+
+    @Override
+    public List<Movie> values() {
+        return movies.values();
+    }
+
+    @Override
+    public void forEach(Consumer<Movie> action) {
+        movies.forEachValue(action);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,156 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+//Компактный двоичный снимок каталога.
+//Формат: [int MAGIC][int VERSION][long позиция WAL][int idCounter][int число фильмов]
+//затем фильмы [int id][int день выпуска][int продолжительность][строка][строка]
+//(строка - [int длина в байтах UTF-8 или -1 для null][байты]), в конце [long CRC32 заголовка][long CRC32 фильмов].
+//Файл пишется во временный и атомарно переименовывается, читается через FileChannel.map
+
+final class MovieSnapshot {
+    private static final int MAGIC = 0x4D485331; // "MHS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES * 4 + Long.BYTES;
+
+    // Заголовок прочитанного снимка
+    final long walPosition;
+    final int idCounter;
+    final int movieCount;
+
+    private MovieSnapshot(long walPosition, int idCounter, int movieCount) {
+        this.walPosition = walPosition;
+        this.idCounter = idCounter;
+        this.movieCount = movieCount;
+    }
+
+    //Пишет снимок. Фильмы поставляет movies (обход может идти параллельно с записью в хранилище).
+    //Число фильмов заранее неизвестно, поэтому оно дописывается в заголовок в конце
+
+    static void write(Path path, long walPosition, int idCounter,
+                      Consumer<Consumer<Movie>> movies) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        int[] count = {0};
+        CRC32 crc = new CRC32();
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // Заголовок пока с нулевым числом фильмов
+            channel.position(HEADER_SIZE);
+            OutputStream raw = Channels.newOutputStream(channel);
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+            DataOutputStream out = new DataOutputStream(checked);
+
+            IOException[] failure = {null};
+            movies.accept(movie -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    out.writeInt(movie.getId());
+                    out.writeInt((int) movie.getReleaseDate().toEpochDay());
+                    out.writeInt(movie.getDuration());
+                    writeString(out, movie.getName());
+                    writeString(out, movie.getDescription());
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putLong(walPosition).putInt(idCounter).putInt(count[0]);
+            header.flip();
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.duplicate());
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES * 2)
+                    .putLong(headerCrc.getValue()).putLong(crc.getValue());
+            trailer.flip();
+            channel.write(trailer, channel.position());
+            channel.write(header, 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Читает снимок через отображение файла в память и передает фильмы в action
+
+    static MovieSnapshot read(Path path, Consumer<Movie> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Long.BYTES * 2 || size > Integer.MAX_VALUE) {
+                throw new IOException("Неверный размер файла снимка: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int bodyEnd = (int) size - Long.BYTES * 2;
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(buffer.slice(0, HEADER_SIZE));
+            CRC32 bodyCrc = new CRC32();
+            bodyCrc.update(buffer.slice(HEADER_SIZE, bodyEnd - HEADER_SIZE));
+            if (headerCrc.getValue() != buffer.getLong(bodyEnd)
+                    || bodyCrc.getValue() != buffer.getLong(bodyEnd + Long.BYTES)) {
+                throw new IOException("Снимок поврежден: не совпадает контрольная сумма");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка");
+            }
+
+            MovieSnapshot snapshot = new MovieSnapshot(buffer.getLong(), buffer.getInt(), buffer.getInt());
+            for (int i = 0; i < snapshot.movieCount; i++) {
+                int id = buffer.getInt();
+                LocalDate releaseDate = LocalDate.ofEpochDay(buffer.getInt());
+                int duration = buffer.getInt();
+                String name = readString(buffer);
+                String description = readString(buffer);
+                action.accept(new Movie(id, name, description, releaseDate, duration));
+            }
+            return snapshot;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
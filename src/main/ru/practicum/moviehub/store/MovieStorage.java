@@ -0,0 +1,36 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+//Основное хранилище фильмов по ID. Реализации должны быть потокобезопасными
+
+interface MovieStorage {
+
+    //Возвращает фильм по ID или null
+
+    Movie get(int id);
+
+    //Сохраняет фильм под его ID
+
+    void put(Movie movie);
+
+    //Удаляет фильм и возвращает удаленный (или null)
+
+    Movie remove(int id);
+
+    int size();
+
+    void clear();
+
+    //Копия всех фильмов (согласованность - как у итераторов ConcurrentHashMap)
+
+    List<Movie> values();
+
+    //Обходит все фильмы небольшими порциями, не копируя хранилище целиком.
+    //Запись блокируется только на время копирования одной порции, action вызывается без блокировок
+
+    void forEach(Consumer<Movie> action);
+}
@@ -1,36 +1,312 @@
 package ru.practicum.moviehub.store;
 
 import ru.practicum.moviehub.model.Movie;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 //Хранилище фильмов
 public class MoviesStore {
-    // Потокобезопасная мапа для хранения фильмов по ID
-    private final Map<Integer, Movie> movies = new ConcurrentHashMap<>();
+    // Потокобезопасное основное хранилище фильмов по ID
+    private final MovieStorage movies;
+
+    // Вторичный индекс: год выпуска -> множество ID фильмов этого года
+    private final Map<Integer, Set<Integer>> idsByYear = new ConcurrentHashMap<>();
+
+    // Сортированный индекс по дате выпуска. Ключ - (epochDay << 32) | id, поэтому
+    // фильмы с одинаковой датой не затирают друг друга, а диапазон дат - это поддиапазон ключей
+    private final NavigableSet<Long> releaseDateIndex = new ConcurrentSkipListSet<>();
+
+    // Инвертированный индекс для полнотекстового поиска
+    private final SearchIndex searchIndex = new SearchIndex();
+
+    // Префиксный индекс названий для автодополнения
+    private final NameSuggester nameSuggester = new NameSuggester();
 
     // Атомарный счетчик для генерации уникальных ID
     private final AtomicInteger idCounter = new AtomicInteger(1);
 
+    // Версии содержимого для условных запросов. Растут после каждого примененного изменения:
+    // общая - при любом, по году - при изменениях фильмов этого года (и при очистке)
+    private final AtomicLong version = new AtomicLong();
+    private final Map<Integer, Long> yearVersions = new ConcurrentHashMap<>();
+    private volatile long clearVersion;
+
+    // Журнал изменений на диске (null - хранилище только в памяти)
+    private volatile WriteAheadLog writeAheadLog;
+
+    // Позиция журнала, с которой надо продолжить восстановление после загрузки снимка
+    private long recoveredWalPosition;
+
+    // Вторичные индексы (год, дата, поиск, подсказки) актуальны. При восстановлении из снимка
+    // и журнала фильмы кладутся только в основное хранилище, а индексы строятся потом одним
+    // проходом - в фоне или при первом обращении к ним
+    private volatile boolean indexesReady = true;
+    private final ReentrantLock indexBuildLock = new ReentrantLock();
+
+    // Изменения берут блокировку чтения (друг другу не мешают) на время "журнал + память".
+    // Снимок на мгновение берет блокировку записи, чтобы зафиксировать позицию журнала,
+    // до которой все изменения уже применены в памяти. Очистка тоже берет блокировку записи:
+    // иначе она встала бы между записью добавления в журнал и вставкой в память, и после
+    // фильм остался бы в памяти, но пропал бы при восстановлении из журнала
+    private final ReentrantReadWriteLock mutationLock = new ReentrantReadWriteLock();
+
+    // Подписчики на удаление и очистку
+    private final List<StoreListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Открытые согласованные взгляды на каталог (см. openView)
+    private final List<CatalogView> openViews = new CopyOnWriteArrayList<>();
+
+    //Хранилище с объектами Movie в куче
+
+    public MoviesStore() {
+        this(StorageMode.HEAP);
+    }
+
+    //Хранилище с заданным способом хранения фильмов
+
+    public MoviesStore(StorageMode storageMode) {
+        this.movies = storageMode == StorageMode.COLUMNAR
+                ? new ColumnarMovieStorage()
+                : new HeapMovieStorage();
+    }
+
+    //Загружает снимок каталога (вместе со счетчиком ID). Вызывается до подключения журнала
+    //и до начала работы с хранилищем. Вторичные индексы при этом не строятся
+    //(см. buildIndexesInBackground). Возвращает число загруженных фильмов
+
+    public int loadSnapshot(Path path) throws IOException {
+        indexesReady = false;
+        int[] nextId = {1};
+        MovieSnapshot snapshot = MovieSnapshot.read(path, movie -> {
+            insert(movie);
+            nextId[0] = Math.max(nextId[0], movie.getId() + 1);
+        });
+        // Счетчик в заголовке фиксируется до обхода фильмов, а фильмы, добавленные во время
+        // записи снимка, попадают в него с ID не меньше счетчика. Без журнала их ID иначе
+        // выдались бы повторно и затерли бы эти фильмы
+        idCounter.set(Math.max(snapshot.idCounter, nextId[0]));
+        recoveredWalPosition = snapshot.walPosition;
+        return snapshot.movieCount;
+    }
+
+    //Пишет снимок каталога. Работает параллельно с изменениями: запись блокируется лишь на
+    //момент фиксации позиции журнала. Изменения, попавшие в снимок после этой позиции,
+    //при восстановлении будут повторно применены из журнала - это безопасно, так как
+    //воспроизведение идемпотентно
+
+    public void writeSnapshot(Path path) throws IOException {
+        long walPosition;
+        int highWaterMark;
+        mutationLock.writeLock().lock();
+        try {
+            WriteAheadLog wal = writeAheadLog;
+            walPosition = wal != null ? wal.size() : 0;
+            highWaterMark = idCounter.get();
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+        MovieSnapshot.write(path, walPosition, highWaterMark, movies::forEach);
+    }
+
+    //Подключает журнал изменений: восстанавливает из него состояние хранилища (после снимка,
+    //если он был загружен) и дальше записывает в него каждое изменение.
+    //Вызывается до начала работы с хранилищем
+
+    public void attachWriteAheadLog(WriteAheadLog wal) throws IOException {
+        indexesReady = false;
+        int[] nextId = {idCounter.get()};
+        wal.replay(recoveredWalPosition, new WriteAheadLog.Visitor() {
+            @Override
+            public void onAdd(Movie movie) {
+                remove(movie.getId());
+                insert(movie);
+                nextId[0] = Math.max(nextId[0], movie.getId() + 1);
+            }
+
+            @Override
+            public void onDelete(int id) {
+                remove(id);
+            }
+
+            @Override
+            public void onClear() {
+                clearInMemory();
+                nextId[0] = 1;
+            }
+        });
+        idCounter.set(nextId[0]);
+        this.writeAheadLog = wal;
+    }
+
+    //Запускает построение вторичных индексов после восстановления в отдельном потоке.
+    //Поиск по ID и полный список работают сразу; запросы по индексам и изменения
+    //дождутся окончания построения
+
+    public void buildIndexesInBackground() {
+        if (!indexesReady) {
+            Thread builder = new Thread(this::awaitIndexes, "index-builder");
+            builder.setDaemon(true);
+            builder.start();
+        }
+    }
+
     //Добавляет фильм в хранилище
 
     public Movie addMovie(Movie movie) {
-        // Теперь проверка на ID=0 делается в валидации, поэтому здесь просто добавляем
-        int id = idCounter.getAndIncrement();
-        Movie newMovie = new Movie(id,
-                movie.getName(),
-                movie.getDescription(),
-                movie.getReleaseDate(),
-                movie.getDuration());
-        movies.put(id, newMovie);
+        awaitIndexes();
+        // Сначала журнал, потом память: ответ клиенту уходит только после записи на диск.
+        // ID выдается под той же блокировкой, что и вставка: тогда на момент взятия блокировки
+        // записи все фильмы с ID меньше счетчика уже лежат в хранилище (см. openView)
+        WriteAheadLog wal;
+        long lsn;
+        Movie newMovie;
+        mutationLock.readLock().lock();
+        try {
+            // Теперь проверка на ID=0 делается в валидации, поэтому здесь просто добавляем
+            int id = idCounter.getAndIncrement();
+            newMovie = new Movie(id,
+                    movie.getName(),
+                    movie.getDescription(),
+                    movie.getReleaseDate(),
+                    movie.getDuration());
+            wal = writeAheadLog;
+            lsn = wal != null ? wal.appendAdd(newMovie) : 0;
+            insert(newMovie);
+            bumpVersion(newMovie);
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+        if (wal != null) {
+            wal.awaitDurable(lsn);
+        }
         return newMovie;
     }
 
+    //Добавляет фильмы пакетом: блок ID резервируется одной операцией, а при включенном
+    //журнале весь пакет ждет одного fsync. Возвращает фильмы с ID в исходном порядке
+
+    public List<Movie> addMovies(List<Movie> batch) {
+        awaitIndexes();
+        if (batch.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Movie> created = new ArrayList<>(batch.size());
+        WriteAheadLog wal;
+        long lsn = 0;
+        mutationLock.readLock().lock();
+        try {
+            int firstId = idCounter.getAndAdd(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Movie movie = batch.get(i);
+                created.add(new Movie(firstId + i,
+                        movie.getName(),
+                        movie.getDescription(),
+                        movie.getReleaseDate(),
+                        movie.getDuration()));
+            }
+            wal = writeAheadLog;
+            for (Movie movie : created) {
+                if (wal != null) {
+                    lsn = wal.appendAdd(movie);
+                }
+                insert(movie);
+                bumpVersion(movie);
+            }
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+        if (wal != null) {
+            wal.awaitDurable(lsn);
+        }
+        return created;
+    }
+
     //Возвращает все фильмы
 
     public List<Movie> getAllMovies() {
-        return new ArrayList<>(movies.values());
+        return movies.values();
+    }
+
+    //Возвращает до limit фильмов с ID больше afterId в порядке возрастания ID.
+    //ID выдаются подряд, поэтому страница - это перебор следующих ID по основному хранилищу
+    //без сортировки и копирования каталога; пропуски от удаленных фильмов просто пропускаются
+
+    public List<Movie> getMoviesAfter(int afterId, int limit) {
+        List<Movie> result = new ArrayList<>(Math.min(limit, 1024));
+        int maxId = idCounter.get() - 1;
+        for (int id = Math.max(afterId, 0) + 1; id <= maxId && result.size() < limit; id++) {
+            Movie movie = movies.get(id);
+            if (movie != null) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    //Есть ли (или может появиться в текущей выдаче) фильм с ID больше заданного
+
+    public boolean hasMoviesAfter(int id) {
+        return id < idCounter.get() - 1;
+    }
+
+    //Версия содержимого хранилища: меняется после любого изменения. Прочитанная до выборки
+    //версия никогда не новее выбранных данных, поэтому ее можно отдавать как ETag
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    //Версия фильмов одного года: меняется только при изменениях фильмов этого года и очистке
+
+    public long getYearVersion(int year) {
+        return Math.max(yearVersions.getOrDefault(year, 0L), clearVersion);
+    }
+
+    //Версия последней очистки. Пока она не изменилась, ID не переиспользуются, а фильмы
+    //неизменяемы - значит, существующий фильм с данным ID остается тем же
+
+    public long getClearVersion() {
+        return clearVersion;
+    }
+
+    //Подписывает на удаление фильмов и очистку хранилища
+
+    public void addListener(StoreListener listener) {
+        listeners.add(listener);
+    }
+
+    //Открывает согласованный взгляд на каталог по состоянию на текущий момент. Изменения
+    //ждут лишь на время регистрации взгляда; дальше удаления и очистка сохраняют для него
+    //затронутые фильмы, а новые фильмы получают ID больше getMaxId() и во взгляд не попадают
+
+    public CatalogView openView() {
+        mutationLock.writeLock().lock();
+        try {
+            CatalogView view = new CatalogView(this, movies, idCounter.get() - 1);
+            openViews.add(view);
+            return view;
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+    }
+
+    void closeView(CatalogView view) {
+        openViews.remove(view);
+    }
+
+    //Количество фильмов в хранилище
+    public int size() {
+        return movies.size();
     }
 
     //Ищет фильм по ID
@@ -40,21 +316,232 @@ public class MoviesStore {
 
     //Удаляет фильм по ID
     public boolean deleteMovie(int id) {
-        return movies.remove(id) != null;
+        awaitIndexes();
+        // Как и добавление - сначала журнал, потом память: если запись в журнал не удалась,
+        // фильм остается на месте. Удаление журналируется, только когда фильм уже в памяти,
+        // а значит, в журнале оно всегда идет после добавления этого фильма
+        WriteAheadLog wal;
+        long lsn;
+        mutationLock.readLock().lock();
+        try {
+            if (movies.get(id) == null) {
+                return false;
+            }
+            wal = writeAheadLog;
+            lsn = wal != null ? wal.appendDelete(id) : 0;
+            // Параллельное удаление того же фильма могло успеть раньше - повторная запись
+            // об удалении в журнале безвредна
+            Movie removed = remove(id);
+            if (removed == null) {
+                return false;
+            }
+            bumpVersion(removed);
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+        for (StoreListener listener : listeners) {
+            listener.onDelete(id);
+        }
+        if (wal != null) {
+            wal.awaitDurable(lsn);
+        }
+        return true;
     }
 
-    //Возвращает фильмы по году выпуска
+    //Возвращает фильмы по году выпуска (через индекс, без обхода всего каталога)
 
     public List<Movie> getMoviesByYear(int year) {
-        return movies.values().stream()
-                .filter(movie -> movie.getReleaseDate().getYear() == year)
-                .toList();
+        awaitIndexes();
+        Set<Integer> ids = idsByYear.get(year);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<Movie> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            // Фильм мог быть удален между чтением индекса и основной мапы
+            Movie movie = movies.get(id);
+            if (movie != null) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    //Возвращает фильмы с датой выпуска в диапазоне [from, to] в порядке дат.
+    //Любая из границ может быть null - тогда диапазон открыт с этой стороны
+
+    public List<Movie> getMoviesByReleaseDate(LocalDate from, LocalDate to) {
+        awaitIndexes();
+        long fromKey = from != null ? from.toEpochDay() << 32 : Long.MIN_VALUE;
+        long toKey = to != null ? (to.toEpochDay() << 32) | 0xFFFFFFFFL : Long.MAX_VALUE;
+        if (fromKey > toKey) {
+            return Collections.emptyList();
+        }
+
+        List<Movie> result = new ArrayList<>();
+        for (Long key : releaseDateIndex.subSet(fromKey, true, toKey, true)) {
+            Movie movie = movies.get((int) key.longValue());
+            if (movie != null) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    //Полнотекстовый поиск по названию и описанию. Возвращает не более limit фильмов,
+    //содержащих все слова запроса, от самых релевантных к менее релевантным
+
+    public List<Movie> search(String query, int limit) {
+        awaitIndexes();
+        List<Movie> result = new ArrayList<>();
+        for (Integer id : searchIndex.search(query, limit)) {
+            Movie movie = movies.get(id);
+            if (movie != null) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    //Возвращает до limit названий фильмов, начинающихся с prefix (без учета регистра).
+    //Основная мапа фильмов при этом не используется
+
+    public List<String> suggestNames(String prefix, int limit) {
+        awaitIndexes();
+        return nameSuggester.suggest(prefix, limit);
     }
 
     //Очищает хранилище (для тестирования)
 
     public void clear() {
+        awaitIndexes();
+        WriteAheadLog wal;
+        long lsn;
+        mutationLock.writeLock().lock();
+        try {
+            wal = writeAheadLog;
+            lsn = wal != null ? wal.appendClear() : 0;
+            for (CatalogView view : openViews) {
+                view.detach();
+            }
+            clearInMemory();
+            clearVersion = version.incrementAndGet();
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+        for (StoreListener listener : listeners) {
+            listener.onClear();
+        }
+        if (wal != null) {
+            wal.awaitDurable(lsn);
+        }
+    }
+
+    //Закрывает журнал изменений, если он подключен
+
+    public void close() throws IOException {
+        WriteAheadLog wal = writeAheadLog;
+        if (wal != null) {
+            writeAheadLog = null;
+            wal.close();
+        }
+    }
+
+    //Поднимает общую версию и версию года фильма (после того как изменение применено)
+
+    private void bumpVersion(Movie movie) {
+        long current = version.incrementAndGet();
+        yearVersions.merge(movie.getReleaseDate().getYear(), current, Math::max);
+    }
+
+    //Кладет фильм в основное хранилище и во все индексы
+
+    private void insert(Movie movie) {
+        movies.put(movie);
+        if (indexesReady) {
+            addToIndexes(movie);
+        }
+    }
+
+    private void addToIndexes(Movie movie) {
+        addToYearIndex(movie);
+        releaseDateIndex.add(releaseDateKey(movie));
+        searchIndex.add(movie);
+        nameSuggester.add(movie);
+    }
+
+    //Убирает фильм из основного хранилища и всех индексов, возвращает удаленный фильм
+
+    private Movie remove(int id) {
+        // Открытые взгляды должны увидеть фильм до того, как он пропадет из хранилища
+        if (!openViews.isEmpty()) {
+            Movie current = movies.get(id);
+            if (current != null) {
+                for (CatalogView view : openViews) {
+                    view.preserve(current);
+                }
+            }
+        }
+        Movie removed = movies.remove(id);
+        if (removed != null && indexesReady) {
+            removeFromYearIndex(removed);
+            releaseDateIndex.remove(releaseDateKey(removed));
+            searchIndex.remove(removed);
+            nameSuggester.remove(removed);
+        }
+        return removed;
+    }
+
+    //Если индексы отложены после восстановления - строит их (или ждет потока, который уже строит).
+    //Изменения в это время тоже ждут, поэтому построение видит неизменное хранилище
+
+    private void awaitIndexes() {
+        if (indexesReady) {
+            return;
+        }
+        indexBuildLock.lock();
+        try {
+            if (!indexesReady) {
+                movies.forEach(this::addToIndexes);
+                indexesReady = true;
+            }
+        } finally {
+            indexBuildLock.unlock();
+        }
+    }
+
+    private void clearInMemory() {
         movies.clear();
+        idsByYear.clear();
+        releaseDateIndex.clear();
+        searchIndex.clear();
+        nameSuggester.clear();
         idCounter.set(1);
     }
-}
\ No newline at end of file
+
+    //Добавляет ID фильма в индекс по году. compute() атомарен для ключа,
+    //поэтому параллельное удаление пустого множества не потеряет запись
+
+    private void addToYearIndex(Movie movie) {
+        idsByYear.compute(movie.getReleaseDate().getYear(), (year, ids) -> {
+            Set<Integer> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            result.add(movie.getId());
+            return result;
+        });
+    }
+
+    //Ключ фильма в индексе по дате: старшие 32 бита - день, младшие - ID
+
+    private static long releaseDateKey(Movie movie) {
+        return (movie.getReleaseDate().toEpochDay() << 32) | (movie.getId() & 0xFFFFFFFFL);
+    }
+
+    //Убирает ID фильма из индекса по году, удаляя опустевшие годы
+
+    private void removeFromYearIndex(Movie movie) {
+        idsByYear.computeIfPresent(movie.getReleaseDate().getYear(), (year, ids) -> {
+            ids.remove(movie.getId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+//Префиксный индекс названий для автодополнения.
+//Названия хранятся в отсортированной skip-list мапе в нормализованном виде, поэтому
+//все названия с заданным префиксом лежат подряд и находятся за O(log n + limit)
+
+class NameSuggester {
+    // Разделитель между нормализованным названием и ID (меньше любого символа названия)
+    private static final char ID_SEPARATOR = '\0';
+
+    // "нормализованное название\0ID" -> название в исходном виде
+    private final NavigableMap<String, String> names = new ConcurrentSkipListMap<>();
+
+    void add(Movie movie) {
+        names.put(key(movie), movie.getName());
+    }
+
+    void remove(Movie movie) {
+        names.remove(key(movie));
+    }
+
+    void clear() {
+        names.clear();
+    }
+
+    //Возвращает до limit различных названий, начинающихся с prefix, в алфавитном порядке
+
+    List<String> suggest(String prefix, int limit) {
+        String normalizedPrefix = normalize(prefix);
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        Set<String> seen = new HashSet<>();
+        for (Map.Entry<String, String> entry : names.tailMap(normalizedPrefix, true).entrySet()) {
+            if (result.size() >= limit || !entry.getKey().startsWith(normalizedPrefix)) {
+                break;
+            }
+            // Одинаковые названия разных фильмов показываем один раз
+            if (seen.add(entry.getValue())) {
+                result.add(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static String key(Movie movie) {
+        return normalize(movie.getName()) + ID_SEPARATOR + movie.getId();
+    }
+
+    //Нормализует строку по тем же правилам, что и поисковый индекс
+
+    private static String normalize(String text) {
+        String trimmed = text.trim();
+        StringBuilder sb = new StringBuilder(trimmed.length());
+        for (int i = 0; i < trimmed.length(); i++) {
+            sb.append(SearchIndex.normalize(trimmed.charAt(i)));
+        }
+        return sb.toString();
+    }
+}
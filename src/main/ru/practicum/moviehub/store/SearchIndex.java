@@ -0,0 +1,142 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Инвертированный индекс для полнотекстового поиска по названию и описанию фильма.
+//Хранит для каждого токена список фильмов с весом совпадения; обновляется инкрементально
+
+class SearchIndex {
+    // Совпадение в названии важнее совпадения в описании
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Токен -> (ID фильма -> вес токена в этом фильме)
+    private final Map<String, Map<Integer, Integer>> postings = new ConcurrentHashMap<>();
+
+    //Индексирует фильм
+
+    void add(Movie movie) {
+        weights(movie).forEach((token, weight) ->
+                postings.compute(token, (t, ids) -> {
+                    Map<Integer, Integer> result = ids != null ? ids : new ConcurrentHashMap<>();
+                    result.put(movie.getId(), weight);
+                    return result;
+                }));
+    }
+
+    //Убирает фильм из индекса, удаляя опустевшие токены
+
+    void remove(Movie movie) {
+        for (String token : weights(movie).keySet()) {
+            postings.computeIfPresent(token, (t, ids) -> {
+                ids.remove(movie.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    //Ищет фильмы, содержащие все токены запроса. Возвращает не более limit ID,
+    //отсортированных по убыванию суммарного веса (при равенстве - по возрастанию ID)
+
+    List<Integer> search(String query, int limit) {
+        Set<String> tokens = new HashSet<>(tokenize(query));
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Начинаем с самого короткого списка, чтобы проверять как можно меньше кандидатов
+        List<Map<Integer, Integer>> lists = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Map<Integer, Integer> ids = postings.get(token);
+            if (ids == null) {
+                return Collections.emptyList();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Map::size));
+
+        // Мин-куча из лучших limit кандидатов: [score, id]
+        PriorityQueue<long[]> top = new PriorityQueue<>(limit + 1, SearchIndex::compareHits);
+        Map<Integer, Integer> shortest = lists.get(0);
+        candidates:
+        for (Map.Entry<Integer, Integer> entry : shortest.entrySet()) {
+            long score = entry.getValue();
+            for (int i = 1; i < lists.size(); i++) {
+                Integer weight = lists.get(i).get(entry.getKey());
+                if (weight == null) {
+                    continue candidates;
+                }
+                score += weight;
+            }
+            top.offer(new long[]{score, entry.getKey()});
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Integer> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add((int) top.poll()[1]);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    //Разбивает текст на токены: последовательности букв и цифр (включая кириллицу),
+    //приведенные к нижнему регистру, с заменой "ё" на "е"
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(normalize(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    //Приводит символ к виду, в котором он хранится в индексе
+
+    static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+    //Вес каждого токена фильма: частота в названии * NAME_WEIGHT + частота в описании
+
+    private static Map<String, Integer> weights(Movie movie) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokenize(movie.getName())) {
+            weights.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(movie.getDescription())) {
+            weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        return weights;
+    }
+
+    //Худший кандидат должен оказаться в голове мин-кучи
+
+    private static int compareHits(long[] a, long[] b) {
+        int byScore = Long.compare(a[0], b[0]);
+        return byScore != 0 ? byScore : Long.compare(b[1], a[1]);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.moviehub.store;
+
+//Способ хранения фильмов в MoviesStore
+
+public enum StorageMode {
+    // Каждый фильм - отдельный объект Movie в куче (по умолчанию)
+    HEAP,
+    // Поколоночное хранение: примитивные массивы + строки в UTF-8 вне кучи.
+    // Объекты Movie создаются только при чтении
+    COLUMNAR
+}
@@ -0,0 +1,15 @@
+package ru.practicum.moviehub.store;
+
+//Подписчик на изменения MoviesStore (например, кеши поверх хранилища).
+//Вызывается в потоке, выполнившем изменение, после того как оно применено в памяти
+
+public interface StoreListener {
+
+    //Фильм с этим ID удален
+
+    void onDelete(int id);
+
+    //Хранилище очищено
+
+    void onClear();
+}
\ No newline at end of file
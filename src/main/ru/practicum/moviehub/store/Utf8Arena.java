@@ -0,0 +1,68 @@
+package ru.practicum.moviehub.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+//Append-only хранилище строк в UTF-8 вне кучи.
+//Память выделяется direct-буферами по CHUNK_SIZE байт; строка хранится как [int длина][байты]
+//и адресуется смещением (номер чанка << CHUNK_BITS | позиция). Запись требует внешней
+//синхронизации, чтение по уже выданному смещению потокобезопасно
+
+class Utf8Arena {
+    private static final int CHUNK_BITS = 26;              // 64 МБ на чанк
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Смещение для null-строки
+    static final long NULL_REF = -1;
+
+    // Список чанков заменяется целиком, чтобы читатели без блокировки видели готовый массив
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private final List<ByteBuffer> chunkList = new ArrayList<>();
+    private int position = CHUNK_SIZE; // Первый append выделит чанк
+
+    //Дописывает строку и возвращает ее смещение. Вызывается под блокировкой записи
+
+    long append(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int needed = Integer.BYTES + bytes.length;
+        if (needed > CHUNK_SIZE) {
+            throw new IllegalArgumentException("Строка слишком длинная для хранения вне кучи");
+        }
+        if (position + needed > CHUNK_SIZE) {
+            chunkList.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+            chunks = chunkList.toArray(new ByteBuffer[0]);
+            position = 0;
+        }
+        ByteBuffer chunk = chunks[chunks.length - 1];
+        chunk.putInt(position, bytes.length);
+        chunk.put(position + Integer.BYTES, bytes);
+        long ref = ((long) (chunks.length - 1) << CHUNK_BITS) | position;
+        position += needed;
+        return ref;
+    }
+
+    //Читает строку по смещению, полученному из append
+
+    String read(long ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer chunk = chunks[(int) (ref >>> CHUNK_BITS)];
+        int pos = (int) (ref & CHUNK_MASK);
+        byte[] bytes = new byte[chunk.getInt(pos)];
+        chunk.get(pos + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //Объем занятой памяти вне кучи в байтах
+
+    long allocatedBytes() {
+        return (long) chunks.length * CHUNK_SIZE;
+    }
+}
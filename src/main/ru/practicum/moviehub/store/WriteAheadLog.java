@@ -0,0 +1,350 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+//Журнал упреждающей записи (WAL) для изменений MoviesStore.
+//Каждая операция дописывается в конец файла записью [int длина][тип + данные][int CRC32].
+//Позиция конца записи служит ее номером (LSN): операция считается надежной,
+//когда fsync дошел до этой позиции. Порядок сброса на диск задается SyncPolicy
+
+public class WriteAheadLog implements Closeable {
+    private static final Logger logger = Logger.getLogger(WriteAheadLog.class.getName());
+
+    private static final byte TYPE_ADD = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_CLEAR = 3;
+
+    // Запись больше этого размера считается поврежденной (фильм не может быть таким большим)
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    //Когда изменения сбрасываются на диск
+
+    public enum SyncPolicy {
+        // fsync после каждой записи, до ответа клиенту
+        ALWAYS,
+        // Групповой коммит: клиент ждет fsync, но параллельные записи сбрасываются одним вызовом
+        BATCH,
+        // fsync раз в syncIntervalMillis в фоне, клиент не ждет (можно потерять последний интервал)
+        PERIODIC
+    }
+
+    //Получатель записей при воспроизведении журнала
+
+    interface Visitor {
+        void onAdd(Movie movie);
+
+        void onDelete(int id);
+
+        void onClear();
+    }
+
+    private final FileChannel channel;
+    private final SyncPolicy syncPolicy;
+    private final ScheduledExecutorService syncScheduler;
+
+    // Защищает запись в файл и writtenLsn. Используются ReentrantLock, а не synchronized,
+    // чтобы ожидание диска не закрепляло виртуальные потоки за платформенными
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private long writtenLsn;
+
+    // Защищает групповой коммит
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncDone = syncLock.newCondition();
+    private volatile long durableLsn;
+    private boolean syncInProgress;
+
+    //Открывает журнал (файл создается, если его нет). При SyncPolicy.PERIODIC запускает фоновый fsync
+
+    public static WriteAheadLog open(Path path, SyncPolicy syncPolicy, long syncIntervalMillis) throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(path, syncPolicy);
+        if (wal.syncScheduler != null) {
+            wal.syncScheduler.scheduleWithFixedDelay(wal::periodicSync,
+                    syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return wal;
+    }
+
+    private WriteAheadLog(Path path, SyncPolicy syncPolicy) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncPolicy = syncPolicy;
+        this.writtenLsn = channel.size();
+        this.durableLsn = writtenLsn;
+
+        if (syncPolicy == SyncPolicy.PERIODIC) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            syncScheduler = null;
+        }
+    }
+
+    //Воспроизводит журнал начиная с позиции from. Обрезает недописанный или поврежденный хвост
+    //(например, после падения посреди записи). Возвращает позицию конца последней целой записи
+
+    long replay(long from, Visitor visitor) throws IOException {
+        writeLock.lock();
+        try {
+            long position = from;
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+
+            while (position + Integer.BYTES <= size) {
+                header.clear();
+                channel.read(header, position);
+                int length = header.getInt(0);
+                if (length <= 0 || length > MAX_RECORD_SIZE || position + Integer.BYTES * 2L + length > size) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.allocate(length + Integer.BYTES);
+                while (record.hasRemaining()) {
+                    if (channel.read(record, position + Integer.BYTES + record.position()) < 0) {
+                        break;
+                    }
+                }
+                CRC32 crc = new CRC32();
+                crc.update(record.array(), 0, length);
+                if ((int) crc.getValue() != record.getInt(length)) {
+                    break;
+                }
+                record.limit(length).position(0);
+                apply(record, visitor);
+                position += Integer.BYTES * 2L + length;
+            }
+
+            if (position < size) {
+                long tail = size - position;
+                logger.warning(() -> String.format("WAL: отброшен поврежденный хвост журнала (%d байт)", tail));
+                channel.truncate(position);
+            }
+            writtenLsn = channel.size();
+            durableLsn = writtenLsn;
+            return position;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    long appendAdd(Movie movie) {
+        byte[] name = utf8(movie.getName());
+        byte[] description = utf8(movie.getDescription());
+        ByteBuffer buffer = newRecord(1 + Integer.BYTES + Long.BYTES + Integer.BYTES
+                + Integer.BYTES + lengthOf(name) + Integer.BYTES + lengthOf(description));
+        buffer.put(TYPE_ADD)
+                .putInt(movie.getId())
+                .putLong(movie.getReleaseDate().toEpochDay())
+                .putInt(movie.getDuration());
+        putString(buffer, name);
+        putString(buffer, description);
+        return append(buffer);
+    }
+
+    long appendDelete(int id) {
+        ByteBuffer buffer = newRecord(1 + Integer.BYTES);
+        buffer.put(TYPE_DELETE).putInt(id);
+        return append(buffer);
+    }
+
+    long appendClear() {
+        ByteBuffer buffer = newRecord(1);
+        buffer.put(TYPE_CLEAR);
+        return append(buffer);
+    }
+
+    //Ждет, пока запись с номером lsn станет надежной согласно политике синхронизации
+
+    void awaitDurable(long lsn) {
+        if (syncPolicy == SyncPolicy.PERIODIC || durableLsn >= lsn) {
+            return;
+        }
+        if (syncPolicy == SyncPolicy.ALWAYS) {
+            force();
+            return;
+        }
+
+        // Групповой коммит: один поток ("лидер") делает fsync за всех, кто успел записаться,
+        // остальные ждут его результата. Пока идет fsync, копится следующая группа
+        while (true) {
+            syncLock.lock();
+            try {
+                while (durableLsn < lsn && syncInProgress) {
+                    syncDone.awaitUninterruptibly();
+                }
+                if (durableLsn >= lsn) {
+                    return;
+                }
+                syncInProgress = true;
+            } finally {
+                syncLock.unlock();
+            }
+
+            // fsync идет без syncLock, чтобы новые записи могли встать в очередь
+            try {
+                force();
+            } finally {
+                syncLock.lock();
+                try {
+                    syncInProgress = false;
+                    syncDone.signalAll();
+                } finally {
+                    syncLock.unlock();
+                }
+            }
+        }
+    }
+
+    //Позиция конца журнала (все записанные, но не обязательно сброшенные данные)
+
+    long size() {
+        writeLock.lock();
+        try {
+            return writtenLsn;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+        writeLock.lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private long append(ByteBuffer buffer) {
+        int length = buffer.position() - Integer.BYTES;
+        buffer.putInt(0, length);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), Integer.BYTES, length);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        writeLock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, writtenLsn + buffer.position());
+            }
+            writtenLsn += buffer.limit();
+            return writtenLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи в журнал", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //Сбрасывает на диск все, что записано к моменту вызова, и сдвигает durableLsn
+
+    private void force() {
+        long target = size();
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка синхронизации журнала", e);
+        }
+        syncLock.lock();
+        try {
+            if (durableLsn < target) {
+                durableLsn = target;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void periodicSync() {
+        if (durableLsn < size()) {
+            try {
+                force();
+            } catch (UncheckedIOException e) {
+                logger.severe(() -> String.format("WAL: ошибка фоновой синхронизации: %s", e.getMessage()));
+            }
+        }
+    }
+
+    private static void apply(ByteBuffer record, Visitor visitor) {
+        byte type = record.get();
+        switch (type) {
+            case TYPE_ADD:
+                int id = record.getInt();
+                LocalDate releaseDate = LocalDate.ofEpochDay(record.getLong());
+                int duration = record.getInt();
+                String name = getString(record);
+                String description = getString(record);
+                visitor.onAdd(new Movie(id, name, description, releaseDate, duration));
+                break;
+            case TYPE_DELETE:
+                visitor.onDelete(record.getInt());
+                break;
+            case TYPE_CLEAR:
+                visitor.onClear();
+                break;
+            default:
+                throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    //Буфер под запись: место под длину в начале и под CRC в конце
+
+    private static ByteBuffer newRecord(int payloadSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + payloadSize + Integer.BYTES);
+        buffer.position(Integer.BYTES);
+        return buffer;
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.moviehub;
+
+import java.lang.management.ManagementFactory;
+
+//Простой замер для микробенчмарков (классы *Bench с main в тестовых исходниках, тестами не
+//запускаются). Операция сначала прогревается, затем меряются время на операцию и байты,
+//выделенные потоком замера на операцию (счетчик аллокаций потока HotSpot)
+
+public final class MicroBench {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Результаты операций пишутся сюда, чтобы JIT не выбросил вычисления
+    public static volatile Object sink;
+
+    //Замеряемая операция. i - номер вызова; результат уходит в sink (примитивы не возвращать:
+    //упаковка попадет в замер аллокаций)
+
+    @FunctionalInterface
+    public interface Operation {
+        Object run(int i) throws Exception;
+    }
+
+    private MicroBench() {
+    }
+
+    //Число операций из первого аргумента main или по умолчанию
+
+    public static int operations(String[] args, int defaultOperations) {
+        return args.length > 0 ? Integer.parseInt(args[0]) : defaultOperations;
+    }
+
+    //Прогревает и замеряет операцию, печатает строку "имя  нс/оп  байт/оп"
+
+    public static void run(String name, int operations, Operation operation) throws Exception {
+        for (int i = 0; i < operations; i++) {
+            sink = operation.run(i);
+        }
+        long thread = Thread.currentThread().threadId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            sink = operation.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - allocatedBefore;
+        System.out.printf("%-36s %10.1f ns/op %10.1f B/op%n",
+                name, (double) elapsed / operations, (double) allocated / operations);
+    }
+}
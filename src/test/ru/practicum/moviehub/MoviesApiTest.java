@@ -4,12 +4,15 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import org.junit.jupiter.api.*;
+import ru.practicum.moviehub.config.MovieHubConfig;
 import ru.practicum.moviehub.http.MoviesServer;
 import ru.practicum.moviehub.model.Movie;
 import ru.practicum.moviehub.model.LocalDateAdapter;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
@@ -20,6 +23,11 @@ import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -379,6 +387,25 @@ class MoviesApiTest {
                 "Должен содержать сообщение 'Неверный формат JSON'");
     }
 
+    @Test
+    @DisplayName("POST /movies с пустым объектом возвращает 422, а не 500")
+    void postMovie_shouldReturn422_whenEmptyObject() throws Exception {
+        for (String body : List.of("{}", "{ }")) {
+            HttpRequest req = HttpRequest.newBuilder()
+                    .uri(URI.create(BASE_URL + "/movies"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            HttpResponse<String> resp = client.send(req,
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+            assertEquals(422, resp.statusCode(), "Тело " + body + " должно пройти разбор и не пройти валидацию");
+            assertTrue(resp.body().contains("Название обязательно"),
+                    "Должен содержать ошибки валидации. Получено: " + resp.body());
+        }
+    }
+
     @Test
     @DisplayName("POST /movies с невалидными данми возвращает 422")
     void postMovie_shouldReturn422_whenInvalidData() throws Exception {
@@ -641,6 +668,494 @@ class MoviesApiTest {
         assertEquals(0, movies.length, "Должен вернуть пустой массив (нет фильмов 2000 года)");
     }
 
+    @Test
+    @DisplayName("GET /movies?year= не возвращает удаленные фильмы")
+    void getMovies_shouldNotReturnDeletedMovie_whenFilteredByYear() throws Exception {
+        Movie kept = postMovie(createMovieJson("Остается", "Фильм 1999", "1999-05-01", 100));
+        Movie deleted = postMovie(createMovieJson("Удаляется", "Фильм 1999", "1999-07-01", 110));
+
+        HttpResponse<String> deleteResp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/" + deleted.getId()))
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(204, deleteResp.statusCode());
+
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies?year=1999"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, resp.statusCode(), "Должен вернуть 200 OK");
+        Movie[] movies = gson.fromJson(resp.body(), Movie[].class);
+        assertEquals(1, movies.length, "Удаленный фильм не должен попадать в выборку по году");
+        assertEquals(kept.getId(), movies[0].getId());
+    }
+
+    @Test
+    @DisplayName("GET /movies?from=&to= возвращает фильмы из диапазона дат по возрастанию")
+    void getMovies_shouldFilterByReleaseDateRange_whenFromAndToProvided() throws Exception {
+        postMovie(createMovieJson("Ранний", "До диапазона", "1999-12-31", 100));
+        postMovie(createMovieJson("Поздний", "Внутри диапазона", "2003-03-03", 100));
+        postMovie(createMovieJson("Первый", "Граница диапазона", "2000-01-01", 100));
+        postMovie(createMovieJson("После", "После диапазона", "2005-01-02", 100));
+
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies?from=2000-01-01&to=2005-01-01"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, resp.statusCode(), "Должен вернуть 200 OK");
+        Movie[] movies = gson.fromJson(resp.body(), Movie[].class);
+        assertEquals(2, movies.length, "Должно быть 2 фильма в диапазоне");
+        assertEquals("Первый", movies[0].getName());
+        assertEquals("Поздний", movies[1].getName());
+
+        // Открытый диапазон: только нижняя граница
+        HttpResponse<String> openResp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies?from=2003-03-03"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, openResp.statusCode());
+        assertEquals(2, gson.fromJson(openResp.body(), Movie[].class).length);
+    }
+
+    @Test
+    @DisplayName("GET /movies?from= с неверной датой или перепутанными границами возвращает 400")
+    void getMovies_shouldReturn400_whenInvalidReleaseDateRange() throws Exception {
+        for (String query : new String[]{"from=2020-13-01", "from=2021-01-01&to=2020-01-01", "year=2000&to=2020-01-01"}) {
+            HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create(BASE_URL + "/movies?" + query))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+            assertEquals(400, resp.statusCode(), "Должен вернуть 400 для ?" + query);
+        }
+    }
+
+    @Test
+    @DisplayName("GET /movies?q= ищет по названию и описанию без учета регистра и ранжирует результаты")
+    void getMovies_shouldSearchByText_whenQueryProvided() throws Exception {
+        postMovie(createMovieJson("Тихий Дон", "Казаки, война и любовь", "1958-10-24", 340));
+        Movie byName = postMovie(createMovieJson("Ёлки и Казаки", "Новогодняя комедия", "2010-12-16", 90));
+        postMovie(createMovieJson("Матрица", "Фантастика про виртуальную реальность", "1999-03-31", 136));
+
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies?q=" + URLEncoder.encode("КАЗАКИ", StandardCharsets.UTF_8)))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, resp.statusCode(), "Должен вернуть 200 OK");
+        Movie[] movies = gson.fromJson(resp.body(), Movie[].class);
+        assertEquals(2, movies.length, "Должно найтись 2 фильма");
+        assertEquals(byName.getId(), movies[0].getId(), "Совпадение в названии должно быть выше");
+
+        // "ё" и "е" считаются одной буквой
+        HttpResponse<String> yoResp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies?q=" + URLEncoder.encode("елки", StandardCharsets.UTF_8)))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(1, gson.fromJson(yoResp.body(), Movie[].class).length);
+    }
+
+    @Test
+    @DisplayName("GET /movies/suggest возвращает названия по префиксу и забывает удаленные фильмы")
+    void suggest_shouldReturnNamesByPrefix_andDropDeletedMovies() throws Exception {
+        postMovie(createMovieJson("Терминатор", "Первая часть", "1984-10-26", 107));
+        Movie sequel = postMovie(createMovieJson("Терминатор 2", "Судный день", "1991-07-01", 137));
+        postMovie(createMovieJson("Титаник", "Драма", "1997-12-19", 194));
+
+        URI uri = URI.create(BASE_URL + "/movies/suggest?prefix="
+                + URLEncoder.encode("тер", StandardCharsets.UTF_8) + "&limit=5");
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder().uri(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, resp.statusCode(), "Должен вернуть 200 OK");
+        assertArrayEquals(new String[]{"Терминатор", "Терминатор 2"}, gson.fromJson(resp.body(), String[].class));
+
+        client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/" + sequel.getId()))
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+        HttpResponse<String> afterDelete = client.send(HttpRequest.newBuilder().uri(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertArrayEquals(new String[]{"Терминатор"}, gson.fromJson(afterDelete.body(), String[].class));
+    }
+
+    @Test
+    @DisplayName("GET /movies?limit=&cursor= отдает каталог страницами в порядке ID")
+    void getMovies_shouldPaginateById_whenLimitAndCursorProvided() throws Exception {
+        List<Integer> expectedIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expectedIds.add(postMovie(createMovieJson("Серия " + i, "Сериал", "2015-01-0" + (i + 1), 45)).getId());
+        }
+        // Удаленный фильм не должен ломать обход
+        client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/" + expectedIds.remove(2)))
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+        List<Integer> actualIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String url = BASE_URL + "/movies?limit=2" + (cursor != null ? "&cursor=" + cursor : "");
+            HttpResponse<String> resp = client.send(HttpRequest.newBuilder().uri(URI.create(url)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            assertEquals(200, resp.statusCode(), "Должен вернуть 200 OK");
+
+            Movie[] page = gson.fromJson(resp.body(), Movie[].class);
+            assertTrue(page.length <= 2, "Страница не должна превышать limit");
+            for (Movie movie : page) {
+                actualIds.add(movie.getId());
+            }
+            cursor = resp.headers().firstValue("X-Next-Cursor").orElse(null);
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        assertEquals(expectedIds, actualIds, "Обход страницами должен вернуть все фильмы по возрастанию ID");
+        assertEquals(2, pages);
+
+        HttpResponse<String> badCursor = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies?cursor=%21%21")).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(400, badCursor.statusCode(), "Испорченный курсор должен давать 400");
+    }
+
+    @Test
+    @DisplayName("GET /movies отдает потоком весь каталог больше одной порции чтения")
+    void getMovies_shouldStreamWholeCatalog_whenCatalogIsLarge() throws Exception {
+        int count = 600;
+        for (int i = 0; i < count; i++) {
+            postMovie(createMovieJson("Фильм " + i, "Описание " + i, "2001-01-01", 90));
+        }
+
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, resp.statusCode(), "Должен вернуть 200 OK");
+        Movie[] movies = gson.fromJson(resp.body(), Movie[].class);
+        assertEquals(count, movies.length, "Должны прийти все фильмы");
+        for (int i = 1; i < movies.length; i++) {
+            assertTrue(movies[i - 1].getId() < movies[i].getId(), "Фильмы должны идти по возрастанию ID");
+        }
+    }
+
+    @Test
+    @DisplayName("POST /movies/batch создает корректные фильмы и сообщает об ошибках по элементам")
+    void postBatch_shouldCreateValidMovies_andReportItemErrors() throws Exception {
+        String batch = "[" + createMovieJson("Аэлита", "Немое кино", "1924-09-25", 111) + ","
+                + createMovieJson("", "Без названия", "1930-01-01", 90) + ","
+                + createMovieJson("Чапаев", "Гражданская война", "1934-11-07", 95) + "]";
+
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(batch))
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(201, resp.statusCode(), "Должен вернуть 201 Created");
+        JsonObject report = gson.fromJson(resp.body(), JsonObject.class);
+        assertEquals(2, report.get("created").getAsInt());
+        assertEquals(1, report.get("failed").getAsInt());
+        assertEquals(1, report.getAsJsonArray("errors").get(0).getAsJsonObject().get("index").getAsInt());
+
+        Movie[] created = gson.fromJson(report.getAsJsonArray("movies"), Movie[].class);
+        assertEquals("Аэлита", created[0].getName());
+        assertEquals(created[0].getId() + 1, created[1].getId(), "ID пакета должны идти подряд");
+
+        HttpResponse<String> all = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies")).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(2, gson.fromJson(all.body(), Movie[].class).length);
+    }
+
+    @Test
+    @DisplayName("POST /movies/batch принимает NDJSON и отклоняет пакет без корректных элементов")
+    void postBatch_shouldAcceptNdjson_andReturn422_whenNothingCreated() throws Exception {
+        // Пустая строка пропускается, но в номере строки с ошибкой учитывается
+        String ndjson = createMovieJson("Броненосец Потемкин", "1905 год", "1925-12-21", 75) + "\n"
+                + "\n"
+                + "{не json}\n";
+
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/batch"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson))
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(201, resp.statusCode(), "Должен вернуть 201 Created");
+        JsonObject report = gson.fromJson(resp.body(), JsonObject.class);
+        assertEquals(1, report.get("created").getAsInt());
+        assertEquals(1, report.get("failed").getAsInt());
+        assertEquals(2, report.getAsJsonArray("errors").get(0).getAsJsonObject().get("index").getAsInt(),
+                "Индекс ошибки - номер строки NDJSON");
+
+        HttpResponse<String> invalidOnly = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/batch"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(createMovieJson("Без даты", "", "", 90)))
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(422, invalidOnly.statusCode(), "Если ничего не создано - 422");
+    }
+
+    @Test
+    @DisplayName("GET /movies/export выгружает каталог в NDJSON, в том числе со сжатием gzip")
+    void export_shouldStreamNdjson_plainAndGzip() throws Exception {
+        int count = 5000;
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            batch.append(createMovieJson("Выгрузка " + i, "Описание", "2010-01-01", 100)).append('\n');
+        }
+        HttpResponse<String> created = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/batch"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(batch.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(201, created.statusCode());
+
+        HttpResponse<String> plain = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/export"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, plain.statusCode());
+        assertTrue(plain.headers().firstValue("Content-Type").orElse("").startsWith("application/x-ndjson"));
+        String[] lines = plain.body().split("\n");
+        assertEquals(count, lines.length, "Каждый фильм - отдельная строка");
+        int previousId = 0;
+        for (String line : lines) {
+            Movie movie = gson.fromJson(line, Movie.class);
+            assertTrue(movie.getId() > previousId, "Фильмы должны идти по возрастанию ID");
+            previousId = movie.getId();
+        }
+
+        HttpResponse<byte[]> compressed = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies/export"))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("gzip", compressed.headers().firstValue("Content-Encoding").orElse(""));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.body()))) {
+            assertEquals(plain.body(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("GET с совпадающим If-None-Match получает 304, после изменения - новый ETag")
+    void conditionalGet_shouldReturn304_untilDataChanges() throws Exception {
+        Movie movie = postMovie(createMovieJson("Афоня", "Данелия", "1975-08-11", 92));
+
+        HttpResponse<String> first = get("/movies", null);
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> cached = get("/movies", etag);
+        assertEquals(304, cached.statusCode(), "Данные не менялись - 304");
+        assertTrue(cached.body().isEmpty(), "У 304 нет тела");
+
+        // Год и фильм по ID не зависят от изменений в других годах
+        String yearEtag = get("/movies?year=1975", null).headers().firstValue("ETag").orElseThrow();
+        String movieEtag = get("/movies/" + movie.getId(), null).headers().firstValue("ETag").orElseThrow();
+        postMovie(createMovieJson("Мимино", "Данелия", "1977-10-01", 97));
+
+        assertEquals(200, get("/movies", etag).statusCode(), "После добавления фильма список изменился");
+        assertEquals(304, get("/movies?year=1975", yearEtag).statusCode());
+        assertEquals(304, get("/movies/" + movie.getId(), "W/" + movieEtag).statusCode());
+
+        // Очистка меняет все версии
+        server.clearStore();
+        assertEquals(200, get("/movies?year=1975", yearEtag).statusCode());
+    }
+
+    @Test
+    @DisplayName("Большие ответы сжимаются в gzip или deflate по Accept-Encoding, маленькие - нет")
+    void getMovies_shouldCompressLargeResponses_whenEncodingAccepted() throws Exception {
+        Movie movie = postMovie(createMovieJson("Берегись автомобиля", "Рязанов", "1966-05-31", 94));
+        for (int i = 0; i < 50; i++) {
+            postMovie(createMovieJson("Фильм " + i, "Длинное описание фильма номер " + i, "1966-01-01", 90));
+        }
+        String plain = get("/movies", null).body();
+        String plainYear = get("/movies?year=1966", null).body();
+
+        HttpResponse<byte[]> gzip = getEncoded("/movies", "gzip, deflate");
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(""));
+        assertEquals("Accept-Encoding", gzip.headers().firstValue("Vary").orElse(""));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // Повторный запрос той же версии отдается из кеша сжатых ответов - байты те же
+        assertArrayEquals(gzip.body(), getEncoded("/movies", "gzip").body());
+
+        // Сильный ETag сжатого представления отличается от несжатого, оба подтверждаются 304
+        String plainEtag = get("/movies", null).headers().firstValue("ETag").orElseThrow();
+        String gzipEtag = gzip.headers().firstValue("ETag").orElseThrow();
+        assertEquals(plainEtag.substring(0, plainEtag.length() - 1) + "-gzip\"", gzipEtag);
+        HttpResponse<String> revalidated = get("/movies", gzipEtag);
+        assertEquals(304, revalidated.statusCode());
+        assertEquals(gzipEtag, revalidated.headers().firstValue("ETag").orElse(""));
+
+        HttpResponse<byte[]> deflate = getEncoded("/movies?year=1966", "gzip;q=0.5, deflate");
+        assertEquals("deflate", deflate.headers().firstValue("Content-Encoding").orElse(""));
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(deflate.body()))) {
+            assertEquals(plainYear, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // Запрет через q=0 и короткий ответ - без сжатия
+        assertTrue(getEncoded("/movies", "gzip;q=0").headers().firstValue("Content-Encoding").isEmpty());
+        assertTrue(getEncoded("/movies/" + movie.getId(), "gzip").headers()
+                .firstValue("Content-Encoding").isEmpty());
+
+        // После изменения данных кеш не отдает прежнее сжатое тело
+        server.clearStore();
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(getEncoded("/movies", "gzip").body()))) {
+            assertEquals("[]", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("POST /movies: тело больше 1 МБ - 413, пустое тело - 400, JSON из потока разбирается")
+    void postMovie_shouldLimitBodySize_andRejectEmptyBody() throws Exception {
+        String huge = createMovieJson("Большой", "x".repeat(1024 * 1024), "2000-01-01", 90);
+        HttpResponse<String> tooLarge = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(huge))
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(413, tooLarge.statusCode());
+
+        for (String empty : new String[]{"", "   \n"}) {
+            HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create(BASE_URL + "/movies"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(empty))
+                    .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            assertEquals(400, resp.statusCode(), "Пустое тело: '" + empty + "'");
+        }
+
+        // Пробелы вокруг JSON и многобайтовые символы на границах буферов не мешают разбору
+        String description = "Ж🎬".repeat(600);
+        Movie movie = postMovie("  \n" + createMovieJson("Юникод 🎬", description, "2000-01-01", 90) + "\n ");
+        assertEquals("Юникод 🎬", movie.getName());
+        assertEquals(description, movie.getDescription());
+    }
+
+    @Test
+    @DisplayName("GET /metrics: счетчики по маршрутам и статусам, гистограммы, байты и размер каталога")
+    void metrics_shouldCountRequestsPerRouteAndStatus() throws Exception {
+        String notFoundLine = "moviehub_http_requests_total{method=\"GET\",route=\"/movies/{id}\",status=\"404\"}";
+        String postCountLine = "moviehub_http_request_duration_seconds_count{method=\"POST\",route=\"/movies\"}";
+        String before = get("/metrics", null).body();
+
+        assertEquals(404, get("/movies/999999", null).statusCode());
+        postMovie(createMovieJson("Метрики", "Описание", "2000-01-01", 90));
+
+        HttpResponse<String> resp = get("/metrics", null);
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        String after = resp.body();
+        assertEquals(metricValue(before, notFoundLine) + 1, metricValue(after, notFoundLine));
+        assertEquals(metricValue(before, postCountLine) + 1, metricValue(after, postCountLine));
+        assertTrue(metricValue(after, "moviehub_http_request_bytes_total")
+                > metricValue(before, "moviehub_http_request_bytes_total"));
+        assertTrue(metricValue(after, "moviehub_http_response_bytes_total")
+                > metricValue(before, "moviehub_http_response_bytes_total"));
+        assertEquals(1, metricValue(after, "moviehub_store_movies"));
+        assertTrue(after.contains("# TYPE moviehub_http_request_duration_seconds histogram"));
+        assertTrue(after.contains("moviehub_http_request_duration_seconds_bucket{method=\"POST\",route=\"/movies\",le=\"+Inf\"}"));
+
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/metrics"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(405, post.statusCode());
+    }
+
+    @Test
+    @DisplayName("Замер фаз: Server-Timing с разбивкой по фазам, по умолчанию заголовка нет")
+    void serverTiming_shouldReportPhases_whenTimingEnabled() throws Exception {
+        HttpResponse<String> plain = get("/movies", null);
+        assertTrue(plain.headers().firstValue("Server-Timing").isEmpty(), "По умолчанию замер выключен");
+
+        MovieHubConfig config = new MovieHubConfig();
+        config.setPort(18080);
+        config.setTimingEnabled(true);
+        config.setSlowRequestMillis(0);
+        MoviesServer timed = new MoviesServer(config);
+        timed.start();
+        try {
+            HttpResponse<String> created = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:18080/movies"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            createMovieJson("Замер", "Описание", "2000-01-01", 90)))
+                    .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            assertEquals(201, created.statusCode());
+            String timing = created.headers().firstValue("Server-Timing").orElse("");
+            assertTrue(timing.matches("parse;dur=\\d+\\.\\d{3}, validate;dur=\\d+\\.\\d{3}, "
+                    + "store;dur=\\d+\\.\\d{3}, serialize;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}"), timing);
+
+            HttpResponse<String> found = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:18080/movies/999999"))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            assertEquals(404, found.statusCode());
+            assertTrue(found.headers().firstValue("Server-Timing").orElse("").startsWith("store;dur="));
+        } finally {
+            timed.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Журнал медленных запросов работает и без замера фаз")
+    void slowRequestLog_shouldWork_whenTimingDisabled() throws Exception {
+        List<String> records = Collections.synchronizedList(new ArrayList<>());
+        Handler capture = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger slowLogger = Logger.getLogger("ru.practicum.moviehub.slow");
+        slowLogger.addHandler(capture);
+
+        MovieHubConfig config = new MovieHubConfig();
+        config.setPort(18081);
+        config.setSlowRequestMillis(0);
+        MoviesServer untimed = new MoviesServer(config);
+        untimed.start();
+        try {
+            HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:18081/movies"))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            assertEquals(200, resp.statusCode());
+            assertTrue(resp.headers().firstValue("Server-Timing").isEmpty());
+            // Запись в журнал идет после отправки ответа - даем обработчику ее дописать
+            long deadline = System.currentTimeMillis() + 3000;
+            while (records.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(records.stream().anyMatch(line -> line.matches(
+                    "Медленный запрос: GET /movies status=200 total=\\d+\\.\\d{3}ms")), records.toString());
+        } finally {
+            untimed.stop();
+            slowLogger.removeHandler(capture);
+        }
+    }
+
     // Вспомогательный метод
     private String createMovieJson(String name, String description, String releaseDate, int duration) {
         JsonObject json = new JsonObject();
@@ -650,4 +1165,43 @@ class MoviesApiTest {
         json.addProperty("duration", duration);
         return gson.toJson(json);
     }
+
+    // GET запрос с необязательным If-None-Match
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().uri(URI.create(BASE_URL + path)).GET();
+        if (ifNoneMatch != null) {
+            builder.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    // GET запрос с заданным Accept-Encoding, тело - как пришло (возможно, сжатое)
+    private HttpResponse<byte[]> getEncoded(String path, String acceptEncoding) throws Exception {
+        return client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + path))
+                .header("Accept-Encoding", acceptEncoding)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    // Значение метрики из текста Prometheus по имени с метками (0, если строки нет)
+    private static long metricValue(String metrics, String series) {
+        for (String line : metrics.split("\n")) {
+            if (line.startsWith(series + " ")) {
+                return (long) Double.parseDouble(line.substring(series.length() + 1));
+            }
+        }
+        return 0;
+    }
+
+    // Создает фильм через API и возвращает ответ сервера
+    private Movie postMovie(String movieJson) throws Exception {
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/movies"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(movieJson))
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(201, resp.statusCode(), "Фильм должен быть создан");
+        return gson.fromJson(resp.body(), Movie.class);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package ru.practicum.moviehub.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import ru.practicum.moviehub.MicroBench;
+import ru.practicum.moviehub.model.LocalDateAdapter;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieCreateRequest;
+import ru.practicum.moviehub.model.MovieValidator;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//Микробенчмарк потоковых адаптеров: Gson по полям через рефлексию против MovieHubGson.
+//Запуск: java -cp <классы и lib/*> ru.practicum.moviehub.api.MovieHubGsonBench [операций]
+
+public class MovieHubGsonBench {
+
+    public static void main(String[] args) throws Exception {
+        int operations = MicroBench.operations(args, 2_000_000);
+        Gson reflective = new GsonBuilder()
+                .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+                .create();
+        Gson adapters = MovieHubGson.create();
+        MovieValidator validator = new MovieValidator();
+
+        Movie movie = new Movie(42, "Кин-дза-дза!", "Два землянина попадают на планету Плюк",
+                LocalDate.of(1986, 12, 1), 135);
+        String movieJson = adapters.toJson(movie);
+        String requestJson = "{\"name\":\"Кин-дза-дза!\",\"description\":\"Ку!\","
+                + "\"releaseDate\":\"1986-12-01\",\"duration\":135}";
+        ErrorResponse error = new ErrorResponse("Ошибка валидации", 422,
+                List.of("Название обязательно", "Продолжительность должна быть положительной"));
+
+        for (Gson gson : new Gson[]{reflective, adapters}) {
+            String label = gson == reflective ? "reflective" : "adapters";
+            MicroBench.run(label + " toJson(Movie)", operations, i -> gson.toJson(movie));
+            MicroBench.run(label + " fromJson(Movie)", operations, i -> gson.fromJson(movieJson, Movie.class));
+            MicroBench.run(label + " fromJson(CreateReq)+toMovie", operations,
+                    i -> validator.toMovie(gson.fromJson(requestJson, MovieCreateRequest.class)));
+            MicroBench.run(label + " toJson(ErrorResponse)", operations, i -> gson.toJson(error));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.practicum.moviehub.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.LocalDateAdapter;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieCreateRequest;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieHubGsonTest {
+    private static final Gson gson = MovieHubGson.create();
+    // Эталон - Gson по полям классов через рефлексию
+    private static final Gson reflective = new GsonBuilder()
+            .registerTypeAdapter(LocalDate.class,
+                    (JsonSerializer<LocalDate>) (date, type, context) -> new JsonPrimitive(date.toString()))
+            .create();
+
+    @Test
+    @DisplayName("Фильм пишется так же, как рефлективным Gson, и читается обратно")
+    void movie_shouldMatchReflectiveGson() {
+        List<Movie> movies = List.of(
+                new Movie(1, "Кин-дза-дза!", "Ку! \"Пепелац\"\n</script>", LocalDate.of(1986, 12, 1), 135),
+                new Movie(2, "Без описания", null, null, 0),
+                new Movie(3, "Древний", "", LocalDate.of(7, 2, 3), 10));
+        for (Movie movie : movies) {
+            String json = gson.toJson(movie);
+            assertEquals(reflective.toJson(movie), json);
+            assertEquals(movie, gson.fromJson(json, Movie.class));
+        }
+        Movie extra = gson.fromJson("{\"unknown\":[1,{\"a\":2}],\"id\":\"5\",\"name\":\"X\",\"duration\":null}",
+                Movie.class);
+        assertEquals(new Movie(5, "X", null, null, 0), extra);
+    }
+
+    @Test
+    @DisplayName("Запрос на создание разбирается так же, как рефлективным Gson")
+    void createRequest_shouldMatchReflectiveGson() {
+        List<String> bodies = List.of(
+                "{\"name\":\"Афоня\",\"description\":\"Данелия\",\"releaseDate\":\"1975-08-11\",\"duration\":92}",
+                "{\"id\":7,\"name\":\"С ID\",\"releaseDate\":\"2000-01-01\",\"duration\":\"90\",\"extra\":{}}",
+                "{\"name\":null,\"duration\":null,\"id\":null}",
+                "{\"name\":true,\"description\":12.5,\"releaseDate\":20240101,\"duration\":100.0}",
+                "{}");
+        for (String body : bodies) {
+            assertEquals(reflective.fromJson(body, MovieCreateRequest.class).toString(),
+                    gson.fromJson(body, MovieCreateRequest.class).toString(), body);
+        }
+        assertNull(gson.fromJson("null", MovieCreateRequest.class));
+        assertThrows(JsonSyntaxException.class,
+                () -> gson.fromJson("{\"duration\":\"долго\"}", MovieCreateRequest.class));
+        assertThrows(JsonSyntaxException.class,
+                () -> gson.fromJson("{\"name\":{\"a\":1}}", MovieCreateRequest.class));
+    }
+
+    @Test
+    @DisplayName("Ответ с ошибкой пишется так же, как рефлективным Gson")
+    void errorResponse_shouldMatchReflectiveGson() {
+        List<ErrorResponse> errors = List.of(
+                new ErrorResponse("Фильм не найден", 404),
+                new ErrorResponse("Ошибка валидации", 422, List.of("Название обязательно", "Дата")),
+                new ErrorResponse(null, 500, Arrays.asList("a", null)));
+        for (ErrorResponse error : errors) {
+            String json = gson.toJson(error);
+            assertEquals(reflective.toJson(error), json);
+            ErrorResponse parsed = gson.fromJson(json, ErrorResponse.class);
+            assertEquals(error.getMessage(), parsed.getMessage());
+            assertEquals(error.getStatus(), parsed.getStatus());
+            assertEquals(error.getDetails(), parsed.getDetails());
+        }
+    }
+
+    @Test
+    @DisplayName("Разбор даты строг так же, как LocalDate.parse")
+    void parseDate_shouldMatchLocalDateParse() {
+        for (String valid : List.of("2024-02-29", "0000-01-01", "9999-12-31", "+10000-01-01", "-0001-06-15")) {
+            assertEquals(LocalDate.parse(valid), LocalDateAdapter.parse(valid), valid);
+            assertEquals(LocalDate.parse(valid).toString(), LocalDateAdapter.format(LocalDate.parse(valid)));
+        }
+        for (String invalid : List.of("2023-02-29", "2023-13-01", "2023-00-10", "2023-1-01", "20a3-01-01",
+                "2023/01/01", "", "2023-01-01 ")) {
+            assertThrows(DateTimeParseException.class, () -> LocalDateAdapter.parse(invalid), invalid);
+        }
+    }
+}
\ No newline at end of file
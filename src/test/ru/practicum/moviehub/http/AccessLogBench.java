@@ -0,0 +1,37 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.MicroBench;
+
+import java.net.InetSocketAddress;
+import java.util.logging.Logger;
+
+//Микробенчмарк журнала доступа: цена для потока запроса у прежнего logger.info со
+//String.format и у AccessLog.record. Оба пишут в java.util.logging (по умолчанию - stderr),
+//поэтому вывод журнала лучше отправить в /dev/null: ... AccessLogBench 2>/dev/null.
+//Цикл обгоняет фоновый поток AccessLog, так что часть записей отбрасывается - это тоже
+//путь запроса, который меряется.
+//Запуск: java -cp <классы и lib/*> ru.practicum.moviehub.http.AccessLogBench [операций]
+
+public class AccessLogBench {
+
+    public static void main(String[] args) throws Exception {
+        int operations = MicroBench.operations(args, 200_000);
+        Logger logger = Logger.getLogger("ru.practicum.moviehub.bench");
+        InetSocketAddress remote = new InetSocketAddress("127.0.0.1", 54321);
+        String method = "GET";
+        String path = "/movies/12345";
+
+        MicroBench.run("logger.info + String.format", operations, i -> {
+            logger.info(() -> String.format("Обработка запроса: %s %s", method, path));
+            return logger;
+        });
+
+        try (AccessLog accessLog = new AccessLog(8192, 1, logger::info)) {
+            MicroBench.run("AccessLog.record", operations, i -> {
+                accessLog.record(method, path, 200, 1_250_000, remote);
+                return accessLog;
+            });
+            System.out.printf("AccessLog: отброшено записей %d%n", accessLog.getDroppedCount());
+        }
+    }
+}
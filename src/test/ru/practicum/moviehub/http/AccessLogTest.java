@@ -0,0 +1,66 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+    private static final InetSocketAddress CLIENT = new InetSocketAddress("127.0.0.1", 54321);
+
+    @Test
+    @DisplayName("Ошибки пишутся всегда, успешные ответы - по выборке, поля в формате ключ=значение")
+    void record_shouldAlwaysLogErrors_andSampleSuccess() {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        AccessLog log = new AccessLog(16, 0, lines::add);
+
+        log.record("GET", "/movies", 200, 1_000_000, CLIENT);
+        log.record("GET", "/movies/1", 304, 1_000_000, CLIENT);
+        log.record("GET", "/movies/999", 404, 2_345_678, CLIENT);
+        log.record("POST", "/movies", 500, 50_000, null);
+        log.close();
+
+        assertEquals(2, lines.size(), "При выборке 0 пишутся только ошибки: " + lines);
+        assertTrue(lines.get(0).matches("ts=\\S+Z method=GET path=/movies/999 status=404 durationMs=2\\.345"
+                + " remote=127\\.0\\.0\\.1"), lines.get(0));
+        assertTrue(lines.get(1).endsWith("method=POST path=/movies status=500 durationMs=0.050"), lines.get(1));
+    }
+
+    @Test
+    @DisplayName("При полном буфере записи отбрасываются без ожидания, число потерь попадает в журнал")
+    void record_shouldDropWithoutBlocking_whenBufferIsFull() throws InterruptedException {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        AccessLog log = new AccessLog(4, 1, line -> {
+            lines.add(line);
+            writerBusy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Фоновый поток забирает первую запись и "зависает" в медленном приемнике
+        log.record("GET", "/movies/0", 200, 0, CLIENT);
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            log.record("GET", "/movies/" + i, 200, 0, CLIENT);
+        }
+        assertEquals(6, log.getDroppedCount(), "Буфер на 4 записи: остальные 6 отброшены");
+
+        release.countDown();
+        log.close();
+        assertEquals(6, lines.size(), lines.toString());
+        assertTrue(lines.get(4).contains("path=/movies/4 "), lines.get(4));
+        assertTrue(lines.get(5).endsWith("пропущено записей: 6"), lines.get(5));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedResponseCacheTest {
+
+    @Test
+    @DisplayName("Сжатое тело отдается только для того же ETag")
+    void get_shouldReturnBody_onlyForSameEtag() {
+        CompressedResponseCache cache = new CompressedResponseCache(1024 * 1024);
+        String key = CompressedResponseCache.key("gzip", "/movies?year=1975");
+        byte[] body = {1, 2, 3};
+
+        cache.put(key, "\"v1\"", body);
+        assertSame(body, cache.get(key, "\"v1\""));
+        assertNull(cache.get(key, "\"v2\""), "Данные изменились - прежнее тело не годится");
+        assertNull(cache.get(CompressedResponseCache.key("deflate", "/movies?year=1975"), "\"v1\""));
+
+        byte[] newer = {4, 5};
+        cache.put(key, "\"v2\"", newer);
+        assertSame(newer, cache.get(key, "\"v2\""));
+    }
+
+    @Test
+    @DisplayName("Объем кеша не выходит за бюджет, слишком большие ответы не кешируются")
+    void put_shouldStayWithinBudget() {
+        long budget = 64 * 1024;
+        CompressedResponseCache cache = new CompressedResponseCache(budget);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(CompressedResponseCache.key("gzip", "/movies?q=" + i), "\"v1\"", new byte[1000]);
+            assertTrue(cache.usedBytes() <= budget, "Превышен бюджет на записи " + i);
+        }
+        // Последние записи остались, самые старые вытеснены
+        assertNotNull(cache.get(CompressedResponseCache.key("gzip", "/movies?q=999"), "\"v1\""));
+        assertNull(cache.get(CompressedResponseCache.key("gzip", "/movies?q=0"), "\"v1\""));
+
+        CompressedResponseCache.Capture capture = cache.capture();
+        capture.write(new byte[(int) budget], 0, (int) budget);
+        cache.put("gzip /movies", "\"v1\"", capture);
+        assertNull(cache.get("gzip /movies", "\"v1\""));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpMetricsTest {
+
+    @Test
+    @DisplayName("Корзины гистограммы: четыре на степень двойки, значение всегда меньше верхней границы")
+    void latencyHistogram_shouldPlaceValuesIntoLogLinearBuckets() {
+        assertEquals(0, LatencyHistogram.index(0));
+        assertEquals(0, LatencyHistogram.index(15));
+        assertEquals(1, LatencyHistogram.index(16));
+        assertEquals(4, LatencyHistogram.index(31));
+        assertEquals(5, LatencyHistogram.index(32));
+        assertEquals(LatencyHistogram.BUCKETS, LatencyHistogram.index(1L << 27));
+
+        for (long micros = 0; micros < (1L << 27); micros = micros * 5 / 4 + 1) {
+            int index = LatencyHistogram.index(micros);
+            assertTrue(micros < LatencyHistogram.upperBoundMicros(index), "значение " + micros);
+            if (index > 0) {
+                assertTrue(micros >= LatencyHistogram.upperBoundMicros(index - 1), "значение " + micros);
+            }
+        }
+        assertEquals("0.000016", LatencyHistogram.UPPER_BOUND_LABELS[0]);
+        assertEquals("134.217728", LatencyHistogram.UPPER_BOUND_LABELS[LatencyHistogram.BUCKETS - 1]);
+    }
+
+    @Test
+    @DisplayName("Выгрузка в формате Prometheus: счетчики по статусам, накопительные корзины, показатели")
+    void toPrometheusText_shouldExposeCountersHistogramsAndGauges() {
+        HttpMetrics metrics = new HttpMetrics();
+        HttpMetrics.RouteMetrics route = metrics.route("GET", "/movies/{id}");
+        route.record(200, 10_000);        // 10 мкс
+        route.record(200, 1_500_000);     // 1.5 мс
+        route.record(404, 20_000);
+        metrics.unmatched().record(405, 5_000);
+        metrics.addRequestBytes(100);
+        metrics.addResponseBytes(2048);
+        metrics.registerGauge("store_movies", "Фильмов в хранилище", () -> 42);
+
+        String text = metrics.toPrometheusText();
+        assertTrue(text.contains("moviehub_http_requests_total{method=\"GET\",route=\"/movies/{id}\",status=\"200\"} 2\n"));
+        assertTrue(text.contains("moviehub_http_requests_total{method=\"GET\",route=\"/movies/{id}\",status=\"404\"} 1\n"));
+        assertTrue(text.contains("moviehub_http_requests_total{method=\"*\",route=\"unmatched\",status=\"405\"} 1\n"));
+        assertTrue(text.contains("moviehub_http_request_duration_seconds_bucket{method=\"GET\",route=\"/movies/{id}\",le=\"0.000016\"} 1\n"));
+        assertTrue(text.contains("moviehub_http_request_duration_seconds_bucket{method=\"GET\",route=\"/movies/{id}\",le=\"0.00002\"} 1\n"));
+        assertTrue(text.contains("moviehub_http_request_duration_seconds_bucket{method=\"GET\",route=\"/movies/{id}\",le=\"0.000024\"} 2\n"));
+        assertTrue(text.contains("moviehub_http_request_duration_seconds_bucket{method=\"GET\",route=\"/movies/{id}\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("moviehub_http_request_duration_seconds_count{method=\"GET\",route=\"/movies/{id}\"} 3\n"));
+        assertTrue(text.contains("moviehub_http_request_duration_seconds_sum{method=\"GET\",route=\"/movies/{id}\"} 0.00153\n"));
+        assertTrue(text.contains("moviehub_http_request_bytes_total 100\n"));
+        assertTrue(text.contains("moviehub_http_response_bytes_total 2048\n"));
+        assertTrue(text.contains("# TYPE moviehub_store_movies gauge\nmoviehub_store_movies 42\n"));
+    }
+}
\ No newline at end of file
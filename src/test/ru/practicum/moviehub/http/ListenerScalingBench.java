@@ -0,0 +1,152 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.config.MovieHubConfig;
+import ru.practicum.moviehub.http.nio.NioServerEngine;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//Нагрузочный замер режима нескольких слушателей: MoviesServer с 1, 2, 4... слушателями (до
+//числа ядер) под нагрузкой клиентов keep-alive, запрашивающих GET /movies/{id}. Для каждого
+//числа слушателей печатает "запросов/с" и среднюю задержку. Клиенты делятся между портами
+//поровну, если слушатели не делят один порт через SO_REUSEPORT.
+//Запуск: java -cp <классы и lib/*> ru.practicum.moviehub.http.ListenerScalingBench
+//        [секунд на замер] [клиентов] [jdk|nio]
+
+public class ListenerScalingBench {
+    private static final int PORT = 8100;
+    private static final int MOVIES = 10_000;
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        ServerEngineType engine = args.length > 2
+                ? ServerEngineType.valueOf(args[2].toUpperCase(Locale.ROOT))
+                : ServerEngineType.NIO;
+        // Как при запуске через MovieHubApp - иначе у движка JDK каждый ответ ждет ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int listeners = 1; listeners <= cores; listeners *= 2) {
+            run(engine, listeners, seconds, clients);
+        }
+    }
+
+    private static void run(ServerEngineType engine, int listeners, int seconds, int clients) throws Exception {
+        MovieHubConfig config = new MovieHubConfig();
+        config.setServerEngine(engine);
+        config.setPort(PORT);
+        config.setListeners(listeners);
+        config.setAccessLogCapacity(0);
+        MoviesServer server = new MoviesServer(config);
+        for (int i = 0; i < MOVIES; i++) {
+            server.getMoviesStore().addMovie(
+                    new Movie(0, "Фильм " + i, "Описание фильма " + i, LocalDate.of(2000, 1, 1), 90));
+        }
+        server.start();
+
+        // Порты слушателей - так же, как их выбирает MoviesServer
+        boolean sharedPort = listeners > 1 && engine == ServerEngineType.NIO
+                && NioServerEngine.isReusePortSupported();
+        LongAdder requests = new LongAdder();
+        LongAdder latencyNanos = new LongAdder();
+        long measureFrom = System.nanoTime() + WARMUP_NANOS;
+        long stopAt = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int port = sharedPort ? PORT : PORT + c % listeners;
+                int client = c;
+                futures.add(pool.submit(() -> {
+                    runClient(port, client, measureFrom, stopAt, requests, latencyNanos);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+            server.stop();
+        }
+
+        long count = requests.sum();
+        System.out.printf("%-4s listeners=%-3d %12.0f req/s %10.1f us/req%n",
+                engine, listeners, count / (double) seconds,
+                count == 0 ? 0.0 : latencyNanos.sum() / 1000.0 / count);
+    }
+
+    //Клиент keep-alive: запрос, ответ целиком, следующий запрос. Считаются только запросы,
+    //начатые после прогрева
+
+    private static void runClient(int port, int client, long measureFrom, long stopAt,
+                                  LongAdder requests, LongAdder latencyNanos) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int n = 0; ; n++) {
+                long start = System.nanoTime();
+                if (start >= stopAt) {
+                    return;
+                }
+                int id = (client * 7919 + n) % MOVIES + 1;
+                out.write(("GET /movies/" + id + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                readResponse(in);
+                if (start >= measureFrom) {
+                    requests.increment();
+                    latencyNanos.add(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    //Читает ответ с Content-Length: заголовки до пустой строки, затем тело
+
+    private static void readResponse(InputStream in) throws IOException {
+        int contentLength = 0;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).equalsIgnoreCase("Content-Length")) {
+                contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+            }
+        }
+        if (in.readNBytes(contentLength).length != contentLength) {
+            throw new EOFException("Соединение закрыто посреди ответа");
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Соединение закрыто посреди ответа");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
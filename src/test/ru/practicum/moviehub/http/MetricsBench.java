@@ -0,0 +1,27 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.MicroBench;
+
+//Микробенчмарк метрик: цена учета запроса (два System.nanoTime и record, как в обертке
+//маршрута MoviesHandler) и время сборки ответа GET /metrics.
+//Запуск: java -cp <классы и lib/*> ru.practicum.moviehub.http.MetricsBench [операций]
+
+public class MetricsBench {
+
+    public static void main(String[] args) throws Exception {
+        int operations = MicroBench.operations(args, 5_000_000);
+        HttpMetrics metrics = new HttpMetrics();
+        HttpMetrics.RouteMetrics route = metrics.route("GET", "/movies/{id}");
+        metrics.registerGauge("moviehub_store_movies", "Фильмов в хранилище", () -> 1000);
+
+        MicroBench.run("nanoTime x2 + record()", operations, i -> {
+            long startNanos = System.nanoTime();
+            route.record(i % 16 == 0 ? 404 : 200, System.nanoTime() - startNanos);
+            return route;
+        });
+
+        String[] text = new String[1];
+        MicroBench.run("toPrometheusText()", Math.max(1, operations / 1000), i -> text[0] = metrics.toPrometheusText());
+        System.out.printf("Размер ответа /metrics: %d символов%n", text[0].length());
+    }
+}
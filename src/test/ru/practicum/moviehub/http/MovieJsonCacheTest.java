@@ -0,0 +1,62 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.LocalDateAdapter;
+import ru.practicum.moviehub.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieJsonCacheTest {
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+            .create();
+
+    @Test
+    @DisplayName("Кеш отдает тот же JSON, что и Gson, и не сериализует фильм повторно")
+    void get_shouldReturnGsonJson_andReuseBytes() {
+        MovieJsonCache cache = new MovieJsonCache(gson, 1024 * 1024);
+        Movie movie = new Movie(7, "Кин-дза-дза!", "Ку!", LocalDate.of(1986, 12, 1), 135);
+
+        byte[] first = cache.get(movie);
+        assertEquals(gson.toJson(movie), new String(first, StandardCharsets.UTF_8));
+        assertSame(first, cache.get(movie));
+        // Равный фильм (например, прочитанный заново из поколоночного хранилища) - тоже попадание
+        assertSame(first, cache.get(new Movie(7, "Кин-дза-дза!", "Ку!", LocalDate.of(1986, 12, 1), 135)));
+    }
+
+    @Test
+    @DisplayName("Другой фильм с тем же ID (после очистки) не получает чужой JSON")
+    void get_shouldNotReturnStaleJson_whenIdReused() {
+        MovieJsonCache cache = new MovieJsonCache(gson, 1024 * 1024);
+        Movie old = new Movie(1, "Старый", "", LocalDate.of(2000, 1, 1), 90);
+        Movie reused = new Movie(1, "Новый", "", LocalDate.of(2001, 1, 1), 95);
+
+        cache.get(old);
+        assertEquals(gson.toJson(reused), new String(cache.get(reused), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Объем кеша не выходит за бюджет, удаление освобождает память")
+    void get_shouldStayWithinBudget_andDropDeleted() {
+        long budget = 64 * 1024;
+        MovieJsonCache cache = new MovieJsonCache(gson, budget);
+        for (int id = 1; id <= 5000; id++) {
+            cache.get(new Movie(id, "Фильм " + id, "Описание фильма " + id, LocalDate.of(2000, 1, 1), 100));
+            assertTrue(cache.usedBytes() <= budget, "Превышен бюджет на фильме " + id);
+        }
+
+        cache.onClear();
+        assertEquals(0, cache.usedBytes());
+        Movie movie = new Movie(1, "Один", "", LocalDate.of(2000, 1, 1), 100);
+        cache.get(movie);
+        assertTrue(cache.usedBytes() > 0);
+        cache.onDelete(1);
+        assertEquals(0, cache.usedBytes());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.api.MovieHubGson;
+import ru.practicum.moviehub.config.MovieHubConfig;
+import ru.practicum.moviehub.http.nio.NioServerEngine;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.ndjson.NdjsonExporter;
+import ru.practicum.moviehub.store.CatalogView;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoviesHandlerTest {
+    private static final int PORT = 8093;
+
+    @Test
+    @DisplayName("Сбой посреди выгрузки обрывает соединение, а не завершает ответ как полный")
+    void export_shouldAbortConnection_whenExportFails() throws Exception {
+        // Выгрузка успевает отдать часть каталога и падает
+        NdjsonExporter failing = new NdjsonExporter(MovieHubGson.create()) {
+            @Override
+            public long export(CatalogView view, OutputStream out) throws IOException {
+                out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                throw new IllegalStateException("Сбой сериализации");
+            }
+        };
+        MoviesHandler handler = new MoviesHandler(new MoviesStore(), new MovieHubConfig(), null, null, failing);
+
+        ServerEngine[] engines = {
+                new JdkServerEngine(new InetSocketAddress(PORT), 16),
+                new NioServerEngine(new InetSocketAddress(PORT + 1), 16)
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        for (int i = 0; i < engines.length; i++) {
+            ServerEngine engine = engines[i];
+            engine.createContext("/movies", handler);
+            engine.setExecutor(executor);
+            engine.start();
+            try (Socket socket = new Socket("localhost", PORT + i)) {
+                socket.setSoTimeout(5000);
+                socket.getOutputStream().write("GET /movies/export HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+
+                String response = readAll(socket.getInputStream());
+                String name = engine.getClass().getSimpleName();
+                assertTrue(response.startsWith("HTTP/1.1 200"), name + ": " + response);
+                assertTrue(response.toLowerCase().contains("transfer-encoding: chunked"), name + ": " + response);
+                assertFalse(response.endsWith("0\r\n\r\n"), name + ": последний chunk не отправляется");
+            } finally {
+                engine.stop();
+            }
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Сбой посреди отдачи полного списка обрывает соединение, а не завершает ответ как полный")
+    void allMovies_shouldAbortConnection_whenListingFails() throws Exception {
+        // Первая порция списка отдается, на второй хранилище падает
+        MoviesStore store = new MoviesStore() {
+            @Override
+            public List<Movie> getMoviesAfter(int afterId, int limit) {
+                if (afterId > 0) {
+                    throw new IllegalStateException("Сбой хранилища");
+                }
+                return super.getMoviesAfter(afterId, limit);
+            }
+        };
+        String description = "Описание ".repeat(20);
+        for (int i = 0; i < 600; i++) {
+            store.addMovie(new Movie(0, "Фильм " + i, description, LocalDate.of(2000, 1, 1), 90));
+        }
+        MoviesHandler handler = new MoviesHandler(store, new MovieHubConfig(), null, null);
+
+        ServerEngine[] engines = {
+                new JdkServerEngine(new InetSocketAddress(PORT), 16),
+                new NioServerEngine(new InetSocketAddress(PORT + 1), 16)
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        for (int i = 0; i < engines.length; i++) {
+            ServerEngine engine = engines[i];
+            engine.createContext("/movies", handler);
+            engine.setExecutor(executor);
+            engine.start();
+            try (Socket socket = new Socket("localhost", PORT + i)) {
+                socket.setSoTimeout(5000);
+                socket.getOutputStream().write("GET /movies HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+
+                String response = readAll(socket.getInputStream());
+                String name = engine.getClass().getSimpleName();
+                assertTrue(response.startsWith("HTTP/1.1 200"), name + ": " + response);
+                assertFalse(response.contains("]"), name + ": список не завершается");
+                assertFalse(response.endsWith("0\r\n\r\n"), name + ": последний chunk не отправляется");
+            } finally {
+                engine.stop();
+            }
+        }
+        executor.shutdown();
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            in.transferTo(buffer);
+        } catch (IOException e) {
+            // Оборванное соединение может закончиться сбросом - прочитанного достаточно
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhaseTimerTest {
+
+    @Test
+    @DisplayName("Повторная фаза суммируется, миллисекунды - с тремя знаками")
+    void phase_shouldAccumulateRepeatedPhases() {
+        PhaseTimer timer = new PhaseTimer();
+        timer.phase("parse");
+        timer.phase("validate");
+        timer.phase("validate");
+        timer.phase("store");
+
+        assertTrue(timer.toServerTiming().matches(
+                "parse;dur=\\d+\\.\\d{3}, validate;dur=\\d+\\.\\d{3}, store;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}"),
+                timer.toServerTiming());
+        assertTrue(timer.describe().matches("parse=\\S+ms validate=\\S+ms store=\\S+ms"), timer.describe());
+
+        StringBuilder millis = new StringBuilder();
+        PhaseTimer.appendMillis(millis, 1_234_567);
+        millis.append(' ');
+        PhaseTimer.appendMillis(millis, 5_000);
+        assertEquals("1.234 0.005", millis.toString());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestBodyReaderTest {
+
+    @Test
+    @DisplayName("Декодирует UTF-8 так же, как new String, даже при чтении по одному символу")
+    void read_shouldDecodeUtf8_acrossBufferBoundaries() throws IOException {
+        String text = "Кин-дза-дза! 🎬 ".repeat(3000);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] malformed = {'a', (byte) 0xC3, 'b', (byte) 0xFF};
+
+        assertEquals(text, readAll(new RequestBodyReader(new ByteArrayInputStream(bytes), bytes.length), 1000));
+        assertEquals(text, readAll(new RequestBodyReader(new ByteArrayInputStream(bytes), bytes.length), 1));
+        assertEquals(new String(malformed, StandardCharsets.UTF_8),
+                readAll(new RequestBodyReader(new ByteArrayInputStream(malformed), 100), 7));
+    }
+
+    @Test
+    @DisplayName("Тело больше лимита обнаруживается, не дочитывая поток")
+    void read_shouldStopAtLimit() {
+        int[] consumed = new int[1];
+        // Бесконечный поток пробелов: считаем, сколько байт у него забрали
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                consumed[0]++;
+                return ' ';
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                consumed[0] += length;
+                java.util.Arrays.fill(buffer, offset, offset + length, (byte) ' ');
+                return length;
+            }
+        };
+        RequestBodyReader reader = new RequestBodyReader(endless, 100_000);
+        assertThrows(IOException.class, () -> readAll(reader, 1024));
+        assertTrue(reader.isLimitExceeded());
+        assertFalse(reader.isReadFailed());
+        assertEquals(100_001, consumed[0], "Из потока читается не больше лимита плюс один байт");
+        reader.close();
+    }
+
+    @Test
+    @DisplayName("Повторное чтение после конца тела возвращает -1, а не падает на сброшенном декодере")
+    void read_shouldKeepReturningEof_afterBodyEnded() throws IOException {
+        RequestBodyReader reader = new RequestBodyReader(
+                new ByteArrayInputStream("{ }".getBytes(StandardCharsets.UTF_8)), 100);
+        char[] buffer = new char[16];
+
+        assertEquals(3, reader.read(buffer, 0, buffer.length));
+        assertEquals(-1, reader.read(buffer, 0, buffer.length));
+        assertEquals(-1, reader.read(buffer, 0, buffer.length));
+        assertEquals(-1, reader.read());
+        reader.close();
+    }
+
+    private static String readAll(RequestBodyReader reader, int chunk) throws IOException {
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[chunk];
+        int read;
+        while ((read = reader.read(buffer, 0, chunk)) != -1) {
+            result.append(buffer, 0, read);
+        }
+        reader.close();
+        return result.toString();
+    }
+}
\ No newline at end of file
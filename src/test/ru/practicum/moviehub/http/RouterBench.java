@@ -0,0 +1,87 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.MicroBench;
+
+//Микробенчмарк маршрутизации: прежний разбор пути через split против Router с маршрутами
+//MoviesHandler. Обработчики пустые - меряется только выбор маршрута.
+//Запуск: java -cp <классы и lib/*> ru.practicum.moviehub.http.RouterBench [операций]
+
+public class RouterBench {
+    private static final String[][] REQUESTS = {
+            {"GET", "/movies"},
+            {"GET", "/movies/12345"},
+            {"GET", "/movies/suggest"},
+            {"DELETE", "/movies/777"},
+            {"POST", "/movies"}
+    };
+
+    // Сюда обработчики кладут переменную пути, чтобы вызов не был пустым
+    private static int lastId;
+
+    public static void main(String[] args) throws Exception {
+        int operations = MicroBench.operations(args, 5_000_000);
+        Router.Handler handler = (exchange, id) -> lastId = id;
+        Router router = new Router()
+                .add("GET", "/movies", handler)
+                .add("GET", "/movies/suggest", handler)
+                .add("GET", "/movies/export", handler)
+                .add("GET", "/movies/{id}", handler)
+                .add("POST", "/movies", handler)
+                .add("POST", "/movies/batch", handler)
+                .add("DELETE", "/movies/{id}", handler);
+
+        for (String[] request : REQUESTS) {
+            String method = request[0];
+            String path = request[1];
+            String label = method + " " + path;
+            MicroBench.run("split  " + label, operations, i -> splitRoute(method, path));
+            MicroBench.run("router " + label, operations, i -> router.dispatch(null, method, path));
+        }
+    }
+
+    //Маршрутизация, как в MoviesHandler до Router: switch по методу и split пути
+
+    private static String splitRoute(String method, String path) {
+        switch (method) {
+            case "GET": {
+                String[] parts = path.split("/");
+                if (parts.length == 2) {
+                    return "list";
+                } else if (parts.length == 3 && parts[2].equals("suggest")) {
+                    return "suggest";
+                } else if (parts.length == 3 && parts[2].equals("export")) {
+                    return "export";
+                } else if (parts.length == 3) {
+                    try {
+                        lastId = Integer.parseInt(parts[2]);
+                        return "get";
+                    } catch (NumberFormatException e) {
+                        return "bad id";
+                    }
+                }
+                return "not found";
+            }
+            case "POST":
+                if (path.equals("/movies")) {
+                    return "create";
+                } else if (path.equals("/movies/batch")) {
+                    return "batch";
+                }
+                return "not allowed";
+            case "DELETE": {
+                String[] parts = path.split("/");
+                if (parts.length == 3 && parts[1].equals("movies")) {
+                    try {
+                        lastId = Integer.parseInt(parts[2]);
+                        return "delete";
+                    } catch (NumberFormatException e) {
+                        return "bad id";
+                    }
+                }
+                return "not allowed";
+            }
+            default:
+                return "not allowed";
+        }
+    }
+}
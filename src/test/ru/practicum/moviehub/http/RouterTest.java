@@ -0,0 +1,51 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+    private final StringBuilder called = new StringBuilder();
+    private final Router router = new Router()
+            .add("GET", "/movies/{id}", (exchange, id) -> called.append("get ").append(id))
+            .add("GET", "/movies", (exchange, id) -> called.append("list"))
+            .add("GET", "/movies/suggest", (exchange, id) -> called.append("suggest"))
+            .add("POST", "/movies/batch", (exchange, id) -> called.append("batch"))
+            .add("DELETE", "/movies/{id}", (exchange, id) -> called.append("delete ").append(id));
+
+    @Test
+    @DisplayName("Литерал побеждает переменную, переменная разбирается как Integer.parseInt")
+    void dispatch_shouldPreferLiterals_andParseVariable() throws IOException {
+        assertRouted("GET", "/movies/suggest", "suggest");
+        assertRouted("GET", "/movies/42", "get 42");
+        assertRouted("GET", "/movies/-7", "get -7");
+        assertRouted("GET", "/movies/+007", "get 7");
+        assertRouted("GET", "/movies/-2147483648", "get -2147483648");
+        assertRouted("DELETE", "/movies/5/", "delete 5");
+        assertRouted("GET", "/movies//", "list");
+    }
+
+    @Test
+    @DisplayName("Неудачи различаются: 404, чужой метод и не число в переменной")
+    void dispatch_shouldReportClosestFailure() throws IOException {
+        assertEquals(Router.Result.NOT_FOUND, router.dispatch(null, "GET", "/movies/5/x"));
+        assertEquals(Router.Result.NOT_FOUND, router.dispatch(null, "GET", "/movies//5"));
+        assertEquals(Router.Result.NOT_FOUND, router.dispatch(null, "GET", "/moviesX"));
+        assertEquals(Router.Result.METHOD_NOT_ALLOWED, router.dispatch(null, "POST", "/movies/abc"));
+        assertEquals(Router.Result.METHOD_NOT_ALLOWED, router.dispatch(null, "PUT", "/movies"));
+        assertEquals(Router.Result.BAD_VARIABLE, router.dispatch(null, "GET", "/movies/abc"));
+        assertEquals(Router.Result.BAD_VARIABLE, router.dispatch(null, "GET", "/movies/2147483648"));
+        // Литерал есть только для POST, а для GET путь подходит под /movies/{id}
+        assertEquals(Router.Result.BAD_VARIABLE, router.dispatch(null, "GET", "/movies/batch"));
+        assertEquals(0, called.length(), "Обработчики не должны вызываться");
+    }
+
+    private void assertRouted(String method, String path, String expected) throws IOException {
+        called.setLength(0);
+        assertEquals(Router.Result.ROUTED, router.dispatch(null, method, path), method + " " + path);
+        assertEquals(expected, called.toString(), method + " " + path);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.MicroBench;
+
+//Микробенчмарк замера фаз: цена одного запроса POST /movies (четыре фазы) для обработчика
+//с выключенным и включенным замером, во втором случае - вместе со сборкой Server-Timing.
+//Запуск: java -cp <классы и lib/*> ru.practicum.moviehub.http.TimingBench [операций]
+
+public class TimingBench {
+
+    public static void main(String[] args) throws Exception {
+        int operations = MicroBench.operations(args, 5_000_000);
+        Probe off = new Probe(false);
+        Probe on = new Probe(true);
+
+        MicroBench.run("timing off", operations, i -> off.request());
+        MicroBench.run("timing on + Server-Timing", operations, i -> on.request());
+    }
+
+    //Обработчик, который отмечает фазы так же, как POST /movies, но ничего не делает
+
+    private static final class Probe extends BaseHttpHandler {
+
+        Probe(boolean timingEnabled) {
+            setTimingEnabled(timingEnabled);
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) {
+        }
+
+        Object request() {
+            PhaseTimer timer = startTiming();
+            phase("parse");
+            phase("validate");
+            phase("store");
+            phase("serialize");
+            String header = timer != null ? timer.toServerTiming() : null;
+            endTiming();
+            return header != null ? header : this;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package ru.practicum.moviehub.http.nio;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NioServerEngineTest {
+    private static final int PORT = 8091;
+    private static NioServerEngine engine;
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void beforeAll() {
+        engine = new NioServerEngine(new InetSocketAddress(PORT), 64, 2);
+        engine.createContext("/echo", exchange -> {
+            byte[] body = (exchange.getRequestMethod() + " " + exchange.getRequestURI()).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        engine.createContext("/stream", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 10_000; i++) {
+                    out.write(("строка " + i + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        engine.setExecutor(executor);
+        engine.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        engine.stop();
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Запросы, отправленные пачкой по одному соединению, получают ответы по порядку")
+    void pipelinedRequests_shouldBeAnsweredInOrder() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            String requests = "GET /echo/1 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "POST /echo/2 HTTP/1.1\r\nHost: localhost\r\nContent-Length: 3\r\n\r\nabc"
+                    + "GET /echo/3 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+
+            String responses = readAll(socket.getInputStream());
+            int first = responses.indexOf("GET /echo/1");
+            int second = responses.indexOf("POST /echo/2");
+            int third = responses.indexOf("GET /echo/3");
+            assertTrue(first > 0 && second > first && third > second, responses);
+            assertTrue(responses.contains("Connection: close"), "Последний ответ закрывает соединение");
+        }
+    }
+
+    @Test
+    @DisplayName("Ответ неизвестной длины уходит chunked, соединение остается открытым")
+    void chunkedResponse_shouldKeepConnectionAlive() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /stream HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.write("GET /echo/next HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            String responses = readAll(socket.getInputStream());
+            assertTrue(responses.contains("Transfer-Encoding: chunked"));
+            assertTrue(responses.contains("строка 9999\n"));
+            assertTrue(responses.indexOf("0\r\n\r\nHTTP/1.1 200") > 0, "После последнего chunk идет следующий ответ");
+            assertTrue(responses.endsWith("GET /echo/next"));
+        }
+    }
+
+    @Test
+    @DisplayName("Клиенту HTTP/1.0 ответ неизвестной длины уходит без chunked, до закрытия соединения")
+    void http10Client_shouldGetCloseDelimitedBody() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write("GET /stream HTTP/1.0\r\nConnection: keep-alive\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            String response = readAll(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 200"), response);
+            assertFalse(response.contains("Transfer-Encoding"), "HTTP/1.0 не понимает chunked");
+            assertTrue(response.contains("Connection: close"));
+            String body = response.substring(response.indexOf("\r\n\r\n") + 4);
+            assertTrue(body.startsWith("строка 0\n") && body.endsWith("строка 9999\n"), "Тело без рамок chunk");
+        }
+    }
+
+    @Test
+    @DisplayName("На Expect: 100-continue приходит 100 Continue, затем ответ на запрос с телом")
+    void expectContinue_shouldBeAnsweredBeforeBody() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /echo/continue HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n"
+                    + "Expect: 100-continue\r\nContent-Length: 3\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            InputStream in = socket.getInputStream();
+            byte[] expected = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+            assertArrayEquals(expected, in.readNBytes(expected.length));
+            out.write("abc".getBytes(StandardCharsets.US_ASCII));
+
+            String response = readAll(in);
+            assertTrue(response.startsWith("HTTP/1.1 200") && response.endsWith("POST /echo/continue"), response);
+        }
+    }
+
+    @Test
+    @DisplayName("Фильтры и аутентификация не поддерживаются и не принимаются молча")
+    void context_shouldRejectFiltersAndAuthenticator() {
+        NioHttpContext context = new NioHttpContext("/", exchange -> { });
+
+        assertThrows(UnsupportedOperationException.class, () -> context.getFilters().add(null));
+        assertThrows(UnsupportedOperationException.class, () -> context.setAuthenticator(null));
+    }
+
+    @Test
+    @DisplayName("Неизвестный путь - 404, испорченный запрос - 400 и закрытие соединения")
+    void unknownPathAndBadRequest_shouldBeRejected() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(("GET /missing HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "это не HTTP\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+
+            String responses = readAll(socket.getInputStream());
+            assertTrue(responses.startsWith("HTTP/1.1 404"), responses);
+            assertTrue(responses.contains("HTTP/1.1 400"), responses);
+        }
+    }
+
+    @Test
+    @DisplayName("Тело больше 64 МБ отклоняется по заголовку, тело по частям дочитывается")
+    void requestBody_shouldBeLimited_andReadAsItArrives() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(("POST /echo HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: 134217728\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            assertTrue(readAll(socket.getInputStream()).startsWith("HTTP/1.1 413"));
+        }
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /echo/parts HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n"
+                    + "Content-Length: 20000\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < 4; i++) {
+                out.write(new byte[5000]);
+                out.flush();
+                Thread.sleep(20);
+            }
+
+            String response = readAll(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 200") && response.endsWith("POST /echo/parts"), response);
+        }
+    }
+
+    @Test
+    @DisplayName("С SO_REUSEPORT несколько движков слушают один порт и все отвечают")
+    void reusePort_shouldAllowSeveralEnginesOnOnePort() throws Exception {
+        if (!NioServerEngine.isReusePortSupported()) {
+            return;
+        }
+        int port = PORT + 1;
+        NioServerEngine first = new NioServerEngine(new InetSocketAddress(port), 64, 1, true);
+        NioServerEngine second = new NioServerEngine(new InetSocketAddress(port), 64, 1, true);
+        for (NioServerEngine listener : new NioServerEngine[]{first, second}) {
+            String name = listener == first ? "first" : "second";
+            listener.createContext("/", exchange -> {
+                byte[] body = name.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+        }
+        first.start();
+        second.start();
+        try {
+            Set<String> answered = new HashSet<>();
+            // Ядро раздает соединения по хешу адресов - за сотню соединений ответят оба
+            for (int i = 0; i < 100 && answered.size() < 2; i++) {
+                try (Socket socket = new Socket("localhost", port)) {
+                    socket.setSoTimeout(5000);
+                    socket.getOutputStream().write("GET / HTTP/1.1\r\nConnection: close\r\n\r\n"
+                            .getBytes(StandardCharsets.US_ASCII));
+                    String response = readAll(socket.getInputStream());
+                    answered.add(response.substring(response.indexOf("\r\n\r\n") + 4));
+                }
+            }
+            assertEquals(Set.of("first", "second"), answered);
+        } finally {
+            first.stop();
+            second.stop();
+        }
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        in.transferTo(buffer);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
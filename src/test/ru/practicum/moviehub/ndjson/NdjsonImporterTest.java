@@ -0,0 +1,95 @@
+package ru.practicum.moviehub.ndjson;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonImporterTest {
+
+    @Test
+    @DisplayName("Импорт добавляет корректные строки и пропускает некорректные")
+    void importFile_shouldSkipInvalidLines() throws Exception {
+        Path file = Files.createTempFile("movies", ".ndjson");
+        try {
+            Files.writeString(file, String.join("\n",
+                    "{\"name\":\"Сталкер\",\"releaseDate\":\"1979-05-25\",\"duration\":163}",
+                    "",
+                    "{\"name\":\"\",\"releaseDate\":\"1979-05-25\",\"duration\":163}",
+                    "{не json",
+                    "{\"name\":\"Солярис\",\"releaseDate\":\"1972-03-20\",\"duration\":167}"));
+
+            MoviesStore store = new MoviesStore();
+            NdjsonImporter.ImportResult result = new NdjsonImporter(store, 2).importFile(file);
+
+            assertEquals(5, result.getLines());
+            assertEquals(2, result.getImported());
+            assertEquals(2, result.getRejected());
+            Set<String> names = store.getAllMovies().stream().map(Movie::getName).collect(Collectors.toSet());
+            assertEquals(Set.of("Сталкер", "Солярис"), names);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Сжатый gzip файл распознается по сигнатуре и импортируется целиком")
+    void importFile_shouldReadGzip() throws Exception {
+        Path file = Files.createTempFile("movies", ".ndjson.gz");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+                 Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < 2500; i++) {
+                    writer.write("{\"name\":\"Фильм " + i + "\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n");
+                }
+            }
+
+            MoviesStore store = new MoviesStore();
+            NdjsonImporter.ImportResult result = new NdjsonImporter(store, 3).importFile(file);
+
+            assertEquals(2500, result.getImported());
+            assertEquals(0, result.getRejected());
+            assertEquals(2500, store.getAllMovies().size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Ошибка рабочего потока прерывает импорт, а не подвешивает чтение файла")
+    void importStream_shouldFail_whenWorkerFails() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            ndjson.append("{\"name\":\"Фильм ").append(i).append("\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n");
+        }
+        // Как при переполненном диске: журнал не принимает записи
+        MoviesStore store = new MoviesStore() {
+            @Override
+            public List<Movie> addMovies(List<Movie> batch) {
+                throw new UncheckedIOException(new IOException("Нет места на диске"));
+            }
+        };
+
+        IOException error = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class,
+                () -> new NdjsonImporter(store, 2).importStream(
+                        new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)))));
+        assertTrue(error.getMessage().contains("Нет места на диске"), error.getMessage());
+    }
+}
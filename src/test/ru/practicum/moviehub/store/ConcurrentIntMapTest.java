@@ -0,0 +1,111 @@
+package ru.practicum.moviehub.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentIntMapTest {
+
+    @Test
+    @DisplayName("Случайные put/remove/get совпадают с HashMap")
+    void operations_shouldMatchHashMap_whenRandomSequence() {
+        ConcurrentIntMap<String> map = new ConcurrentIntMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // Небольшой диапазон ключей дает много коллизий и удалений из середины цепочек
+            int key = 1 + random.nextInt(5_000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+                    break;
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = 1; key <= 5_000; key++) {
+            assertEquals(expected.get(key), map.get(key), "Ключ " + key);
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(1));
+    }
+
+    @Test
+    @DisplayName("Ключ 0 зарезервирован")
+    void put_shouldReject_whenKeyIsZero() {
+        ConcurrentIntMap<String> map = new ConcurrentIntMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, "x"));
+        assertNull(map.get(0));
+    }
+
+    @Test
+    @DisplayName("Удаление ключа 0 ничего не меняет")
+    void remove_shouldIgnore_whenKeyIsZero() {
+        ConcurrentIntMap<String> map = new ConcurrentIntMap<>();
+        for (int key = 1; key <= 100; key++) {
+            map.put(key, "v" + key);
+        }
+
+        assertNull(map.remove(0));
+        assertEquals(100, map.size());
+        for (int key = 1; key <= 100; key++) {
+            assertEquals("v" + key, map.get(key));
+        }
+    }
+
+    @Test
+    @DisplayName("Параллельные записи не теряют ключи и читатели их видят")
+    void put_shouldKeepAllKeys_whenConcurrentWriters() throws Exception {
+        ConcurrentIntMap<Integer> map = new ConcurrentIntMap<>();
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 1; i <= perThread; i++) {
+                        map.put(base + i, base + i);
+                        assertEquals(base + i, map.get(base + i));
+                        // Удаляем каждый четвертый ключ, чтобы нагрузить сдвиг цепочек
+                        if (i % 4 == 0) {
+                            assertEquals(base + i, map.remove(base + i));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * perThread * 3 / 4, map.size());
+        for (int key = 1; key <= threads * perThread; key++) {
+            int i = (key - 1) % perThread + 1;
+            if (i % 4 == 0) {
+                assertNull(map.get(key));
+            } else {
+                assertEquals(key, map.get(key));
+            }
+        }
+    }
+}